@@ -0,0 +1,287 @@
+/*
+ * Copyright (C) 2009 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.alarmclock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.content.ContentResolver;
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.content.pm.ProviderInfo;
+import android.database.Cursor;
+import android.database.DatabaseErrorHandler;
+import android.database.sqlite.SQLiteDatabase;
+import android.test.mock.MockContentResolver;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Synthetic load for the alarm stack: grows the alarms table to 10k rows
+ * and times an alarm edit with picking the next alert, and reading the list
+ * a page at a time, at each size. Fails unless both stay flat as the table
+ * grows.
+ *
+ * Runs against an AlarmProvider and database of its own, and never sets
+ * the alert in AlarmManager, so the user's alarms are left alone. Results
+ * go to logcat under the AlarmScaleBenchmark tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class AlarmScaleBenchmark {
+
+    private static final String TAG = "AlarmScaleBenchmark";
+
+    private static final int[] SIZES = { 12, 100, 1000, 10000 };
+    private static final int EDITS = 200;
+    private static final int PAGE_WALKS = 5;
+    private static final int INSERT_BATCH = 500;
+
+    // How many times slower than at the smallest size an edit or a page may
+    // be at the largest one. Leaves room for the O(log n) parts and noise.
+    private static final int MAX_SLOWDOWN = 3;
+
+    private BenchmarkContext mContext;
+    private ContentResolver mResolver;
+    private final Random mRandom = new Random(46);
+    // Alarms from this id on were added by the benchmark.
+    private int mFirstId;
+
+    @Before
+    public void setUp() {
+        mContext = new BenchmarkContext(InstrumentationRegistry
+                .getInstrumentation().getTargetContext());
+        mContext.deleteDatabase(BenchmarkContext.DATABASE_NAME);
+
+        ProviderInfo info = new ProviderInfo();
+        info.authority = Alarm.Columns.CONTENT_URI.getAuthority();
+        AlarmProvider provider = new AlarmProvider();
+        provider.attachInfo(mContext, info);
+        mContext.mResolver.addProvider(info.authority, provider);
+        mResolver = mContext.getContentResolver();
+
+        // The schedule must read from the benchmark's provider too.
+        AlarmSchedule.resetInstance();
+        AlarmSchedule.getInstance(mContext);
+
+        mFirstId = queryInt("max(" + Alarm.Columns._ID + ")") + 1;
+    }
+
+    @After
+    public void tearDown() {
+        // The app builds its schedule from its own provider again.
+        AlarmSchedule.resetInstance();
+        mContext.deleteDatabase(BenchmarkContext.DATABASE_NAME);
+    }
+
+    @Test
+    public void editAndListStayFlat() {
+        long firstEditNs = 0;
+        long firstPageNs = 0;
+        long editNs = 0;
+        long pageNs = 0;
+        int count = 0;
+        for (int size : SIZES) {
+            count = Alarms.getAlarmCount(mResolver);
+            while (count < size) {
+                int batch = Math.min(size - count, INSERT_BATCH);
+                insertAlarms(batch);
+                count += batch;
+            }
+            // Load the schedule before timing, as a running app would have.
+            Alarms.calculateNextAlert(mContext);
+
+            editNs = timeEdits();
+            pageNs = timePages(count);
+            android.util.Log.i(TAG, String.format(
+                    "n=%d edit+next alert=%.3f ms full page=%.3f ms",
+                    count, editNs / 1e6, pageNs / 1e6));
+
+            if (firstEditNs == 0) {
+                firstEditNs = editNs;
+            }
+            // Small tables do not fill a page; compare with the first that
+            // does.
+            if (firstPageNs == 0) {
+                firstPageNs = pageNs;
+            }
+        }
+
+        assertTrue(String.format("edit took %.3f ms at n=%d, %.3f ms at n=%d",
+                editNs / 1e6, count, firstEditNs / 1e6, SIZES[0]),
+                editNs <= MAX_SLOWDOWN * firstEditNs);
+        assertTrue("no size filled a page", firstPageNs > 0);
+        assertTrue(String.format("page took %.3f ms at n=%d, %.3f ms before",
+                pageNs / 1e6, count, firstPageNs / 1e6),
+                pageNs <= MAX_SLOWDOWN * firstPageNs);
+    }
+
+    // Enables random repeating alarms at random times.
+    private void insertAlarms(int count) {
+        ContentValues[] rows = new ContentValues[count];
+        for (int i = 0; i < count; i++) {
+            ContentValues values = new ContentValues(4);
+            values.put(Alarm.Columns.HOUR, mRandom.nextInt(24));
+            values.put(Alarm.Columns.MINUTES, mRandom.nextInt(60));
+            values.put(Alarm.Columns.DAYS_OF_WEEK, 1 + mRandom.nextInt(127));
+            values.put(Alarm.Columns.ENABLED, 1);
+            rows[i] = values;
+        }
+        mResolver.bulkInsert(Alarm.Columns.CONTENT_URI, rows);
+    }
+
+    // Returns the median time to toggle one of the added alarms and pick the
+    // next alert, which is what Alarms.enableAlarm() does short of telling
+    // AlarmManager.
+    private long timeEdits() {
+        // The added rows got consecutive ids.
+        int added = countAdded();
+        long[] times = new long[EDITS];
+        ContentValues values = new ContentValues(1);
+        for (int i = 0; i < EDITS; i++) {
+            int id = mFirstId + mRandom.nextInt(added);
+            long start = System.nanoTime();
+            values.put(Alarm.Columns.ENABLED, i % 2 != 0 ? 1 : 0);
+            mResolver.update(ContentUris.withAppendedId(
+                    Alarm.Columns.CONTENT_URI, id), values, null, null);
+            Alarms.calculateNextAlert(mContext);
+            times[i] = System.nanoTime() - start;
+        }
+        return median(times, EDITS);
+    }
+
+    // Reads every page of the list the way AlarmClock does, PAGE_WALKS
+    // times. Returns the median time to read a full page, or 0 if there is
+    // none.
+    private long timePages(int count) {
+        int pages = count / AlarmClock.LIST_PAGE_SIZE;
+        long[] times = new long[pages * PAGE_WALKS];
+        int timed = 0;
+        for (int walk = 0; walk < PAGE_WALKS; walk++) {
+            Alarm after = null;
+            int read = 0;
+            while (true) {
+                long start = System.nanoTime();
+                Cursor cursor = Alarms.getAlarmsPage(mResolver, after,
+                        AlarmClock.LIST_PAGE_SIZE);
+                int rows = 0;
+                while (cursor.moveToNext()) {
+                    after = new Alarm(cursor);
+                    rows++;
+                }
+                cursor.close();
+                long time = System.nanoTime() - start;
+                if (rows == AlarmClock.LIST_PAGE_SIZE) {
+                    times[timed++] = time;
+                }
+                read += rows;
+                if (rows < AlarmClock.LIST_PAGE_SIZE) {
+                    break;
+                }
+            }
+            assertEquals(count, read);
+        }
+        return timed > 0 ? median(times, timed) : 0;
+    }
+
+    private static long median(long[] times, int count) {
+        Arrays.sort(times, 0, count);
+        return times[count / 2];
+    }
+
+    private int countAdded() {
+        Cursor cursor = mResolver.query(Alarm.Columns.CONTENT_URI,
+                new String[] { "count(*)" }, Alarm.Columns._ID + ">=?",
+                new String[] { Integer.toString(mFirstId) }, null);
+        try {
+            return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private int queryInt(String column) {
+        Cursor cursor = mResolver.query(Alarm.Columns.CONTENT_URI,
+                new String[] { column }, null, null, null);
+        try {
+            return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * The app context with its own content resolver, and its databases
+     * under names of their own.
+     */
+    private static final class BenchmarkContext extends ContextWrapper {
+        // As in AlarmProvider.
+        static final String DATABASE_NAME = "alarms.db";
+        private static final String PREFIX = "benchmark-";
+
+        final MockContentResolver mResolver = new MockContentResolver();
+
+        BenchmarkContext(Context base) {
+            super(base);
+        }
+
+        @Override
+        public Context getApplicationContext() {
+            return this;
+        }
+
+        @Override
+        public ContentResolver getContentResolver() {
+            return mResolver;
+        }
+
+        @Override
+        public File getDatabasePath(String name) {
+            return super.getDatabasePath(PREFIX + name);
+        }
+
+        @Override
+        public SQLiteDatabase openOrCreateDatabase(String name, int mode,
+                SQLiteDatabase.CursorFactory factory) {
+            return super.openOrCreateDatabase(PREFIX + name, mode, factory);
+        }
+
+        @Override
+        public SQLiteDatabase openOrCreateDatabase(String name, int mode,
+                SQLiteDatabase.CursorFactory factory,
+                DatabaseErrorHandler errorHandler) {
+            return super.openOrCreateDatabase(PREFIX + name, mode, factory,
+                    errorHandler);
+        }
+
+        @Override
+        public boolean deleteDatabase(String name) {
+            return super.deleteDatabase(PREFIX + name);
+        }
+    }
+}
@@ -26,6 +26,7 @@ import android.provider.BaseColumns;
 
 import java.text.DateFormatSymbols;
 import java.util.Calendar;
+import java.util.Locale;
 
 public final class Alarm implements Parcelable {
 
@@ -56,7 +57,7 @@ public final class Alarm implements Parcelable {
         p.writeLong(time);
         p.writeInt(vibrate ? 1 : 0);
         p.writeString(label);
-        p.writeParcelable(alert, flags);
+        p.writeParcelable(getAlert(), flags);
         p.writeInt(silent ? 1 : 0);
     }
     /**
@@ -92,13 +93,22 @@ public final class Alarm implements Parcelable {
         // Audio alert to play when alarm triggers Type: STRING
         public static final String ALERT = "alert";
 
-        // Sort order for this table
+        // Sort order for this table. The id makes it a total order, which
+        // paging relies on.
         public static final String DEFAULT_SORT_ORDER =
-                HOUR + ", " + MINUTES + " ASC";
+                HOUR + ", " + MINUTES + ", " + _ID + " ASC";
+
+        // Query parameter limiting how many rows a query returns.
+        public static final String QUERY_LIMIT = "limit";
 
         // Filtering enabled alarms.
         public static final String WHERE_ENABLED = ENABLED + "=1";
 
+        // Filtering enabled non-repeating alarms whose time is before the
+        // time given as the only argument.
+        public static final String WHERE_EXPIRED = ENABLED + "=1 AND " +
+                ALARM_TIME + "!=0 AND " + ALARM_TIME + "<?";
+
         static final String[] ALARM_QUERY_COLUMNS = {
             _ID, HOUR, MINUTES, DAYS_OF_WEEK, ALARM_TIME,
             ENABLED, VIBRATE, MESSAGE, ALERT };
@@ -116,6 +126,11 @@ public final class Alarm implements Parcelable {
         public static final int ALARM_VIBRATE_INDEX = 6;
         public static final int ALARM_MESSAGE_INDEX = 7;
         public static final int ALARM_ALERT_INDEX = 8;
+
+        // The columns scheduling needs, for scans over many alarms. They are
+        // the leading ALARM_QUERY_COLUMNS, so the same indexes apply.
+        static final String[] SCHEDULE_QUERY_COLUMNS = {
+            _ID, HOUR, MINUTES, DAYS_OF_WEEK, ALARM_TIME };
     }
     /**
      * End column definitions
@@ -130,9 +145,13 @@ public final class Alarm implements Parcelable {
     public long       time;
     public boolean    vibrate;
     public String     label;
-    public Uri        alert;
     public boolean    silent;
 
+    // The alert column as stored, resolved into mAlert by getAlert().
+    private String    mAlertString;
+    private Uri       mAlert;
+    private boolean   mAlertResolved;
+
     public Alarm(Cursor c) {
         id = c.getInt(Columns.ALARM_ID_INDEX);
         enabled = c.getInt(Columns.ALARM_ENABLED_INDEX) == 1;
@@ -142,23 +161,28 @@ public final class Alarm implements Parcelable {
         time = c.getLong(Columns.ALARM_TIME_INDEX);
         vibrate = c.getInt(Columns.ALARM_VIBRATE_INDEX) == 1;
         label = c.getString(Columns.ALARM_MESSAGE_INDEX);
-        String alertString = c.getString(Columns.ALARM_ALERT_INDEX);
-        if (Alarms.ALARM_ALERT_SILENT.equals(alertString)) {
-            if (Log.LOGV) {
-                Log.v("Alarm is marked as silent");
-            }
-            silent = true;
-        } else {
-            if (alertString != null && alertString.length() != 0) {
-                alert = Uri.parse(alertString);
-            }
+        mAlertString = c.getString(Columns.ALARM_ALERT_INDEX);
+        // A silent alarm has no alert to resolve.
+        silent = Alarms.ALARM_ALERT_SILENT.equals(mAlertString);
+        mAlertResolved = silent;
+    }
 
-            // If the database alert is null or it failed to parse, use the default alert.
-            if (alert == null) {
-                alert = RingtoneManager.getDefaultUri(
-                        RingtoneManager.TYPE_ALARM);
-            }
-        }
+    // Reads a row of SCHEDULE_QUERY_COLUMNS from a query of enabled alarms.
+    // Label and alert are not read; look the alarm up again to show or play
+    // it.
+    static Alarm forScheduling(Cursor c) {
+        Alarm alarm = new Alarm();
+        alarm.id = c.getInt(Columns.ALARM_ID_INDEX);
+        alarm.enabled = true;
+        alarm.hour = c.getInt(Columns.ALARM_HOUR_INDEX);
+        alarm.minutes = c.getInt(Columns.ALARM_MINUTES_INDEX);
+        alarm.daysOfWeek =
+                new DaysOfWeek(c.getInt(Columns.ALARM_DAYS_OF_WEEK_INDEX));
+        alarm.time = c.getLong(Columns.ALARM_TIME_INDEX);
+        return alarm;
+    }
+
+    private Alarm() {
     }
 
     public Alarm(Parcel p) {
@@ -170,10 +194,76 @@ public final class Alarm implements Parcelable {
         time = p.readLong();
         vibrate = p.readInt() == 1;
         label = p.readString();
-        alert = (Uri) p.readParcelable(null);
+        mAlert = (Uri) p.readParcelable(null);
+        mAlertResolved = true;
         silent = p.readInt() == 1;
     }
 
+    // Used by AlarmCodec. alert is the alert column as stored.
+    Alarm(int id, boolean enabled, int hour, int minutes, int daysOfWeek,
+            long time, boolean vibrate, boolean silent, String label,
+            String alert) {
+        this.id = id;
+        this.enabled = enabled;
+        this.hour = hour;
+        this.minutes = minutes;
+        this.daysOfWeek = new DaysOfWeek(daysOfWeek);
+        this.time = time;
+        this.vibrate = vibrate;
+        this.label = label;
+        this.silent = silent;
+        mAlertString = alert;
+        mAlertResolved = silent;
+    }
+
+    // Copies another alarm, so that the copy can be changed on its own.
+    Alarm(Alarm other) {
+        id = other.id;
+        enabled = other.enabled;
+        hour = other.hour;
+        minutes = other.minutes;
+        daysOfWeek = new DaysOfWeek(other.daysOfWeek.getCoded());
+        time = other.time;
+        vibrate = other.vibrate;
+        label = other.label;
+        silent = other.silent;
+        mAlertString = other.mAlertString;
+        mAlert = other.mAlert;
+        mAlertResolved = other.mAlertResolved;
+    }
+
+    /**
+     * Returns the ringtone to play, or null for a silent alarm. The alert
+     * column is parsed on the first call.
+     */
+    public Uri getAlert() {
+        if (!mAlertResolved) {
+            if (mAlertString != null && mAlertString.length() != 0) {
+                mAlert = Uri.parse(mAlertString);
+            }
+
+            // If the database alert is null or it failed to parse, use the default alert.
+            if (mAlert == null) {
+                mAlert = RingtoneManager.getDefaultUri(
+                        RingtoneManager.TYPE_ALARM);
+            }
+            mAlertResolved = true;
+        }
+        return mAlert;
+    }
+
+    // Returns the alert column as stored, or the string form of the alert
+    // of an alarm read from a Parcel. Does not resolve the alert.
+    String getAlertString() {
+        if (silent) {
+            return Alarms.ALARM_ALERT_SILENT;
+        }
+        if (mAlertString != null || mAlert == null) {
+            return mAlertString;
+        }
+        return mAlert.toString();
+    }
+
     public String getLabelOrDefault(Context context) {
         if (label == null || label.length() == 0) {
             return context.getString(R.string.default_label);
@@ -204,6 +294,38 @@ public final class Alarm implements Parcelable {
             Calendar.SUNDAY,
         };
 
+        private static final int ALL_DAYS = 0x7f;
+
+        // Days from weekday d (0 = Monday) to the next day set in mask m,
+        // at index m * 7 + d. 7 when m has no day set.
+        private static final byte[] NEXT_DAY = new byte[(ALL_DAYS + 1) * 7];
+
+        static {
+            for (int mask = 0; mask <= ALL_DAYS; mask++) {
+                for (int today = 0; today < 7; today++) {
+                    int dayCount = 0;
+                    for (; dayCount < 7; dayCount++) {
+                        if ((mask & (1 << ((today + dayCount) % 7))) != 0) {
+                            break;
+                        }
+                    }
+                    NEXT_DAY[mask * 7 + today] = (byte) dayCount;
+                }
+            }
+        }
+
+        // Day names of every mask, for the locale they were made in.
+        private static final class DayNames {
+            final Locale locale;
+            final String[] names = new String[ALL_DAYS + 1];
+
+            DayNames(Locale locale) {
+                this.locale = locale;
+            }
+        }
+
+        private static volatile DayNames sDayNames;
+
         // Bitmask of all repeating days
         private int mDays;
 
@@ -212,35 +334,44 @@ public final class Alarm implements Parcelable {
         }
 
         public String toString(Context context, boolean showNever) {
-            StringBuilder ret = new StringBuilder();
-
             // no days
             if (mDays == 0) {
                 return showNever ?
                         context.getText(R.string.never).toString() : "";
             }
 
-            // every day
-            if (mDays == 0x7f) {
-                return context.getText(R.string.every_day).toString();
+            final int mask = mDays & ALL_DAYS;
+            final Locale locale = Locale.getDefault();
+            DayNames dayNames = sDayNames;
+            if (dayNames == null || !dayNames.locale.equals(locale)) {
+                dayNames = new DayNames(locale);
+                sDayNames = dayNames;
             }
+            String names = dayNames.names[mask];
+            if (names == null) {
+                names = formatDays(context, mask);
+                dayNames.names[mask] = names;
+            }
+            return names;
+        }
 
-            // count selected days
-            int dayCount = 0, days = mDays;
-            while (days > 0) {
-                if ((days & 1) == 1) dayCount++;
-                days >>= 1;
+        private static String formatDays(Context context, int mask) {
+            // every day
+            if (mask == ALL_DAYS) {
+                return context.getText(R.string.every_day).toString();
             }
 
             // short or long form?
+            int dayCount = Integer.bitCount(mask);
             DateFormatSymbols dfs = new DateFormatSymbols();
             String[] dayList = (dayCount > 1) ?
                     dfs.getShortWeekdays() :
                     dfs.getWeekdays();
 
             // selected days
+            StringBuilder ret = new StringBuilder();
             for (int i = 0; i < 7; i++) {
-                if ((mDays & (1 << i)) != 0) {
+                if ((mask & (1 << i)) != 0) {
                     ret.append(dayList[DAY_MAP[i]]);
                     dayCount -= 1;
                     if (dayCount > 0) ret.append(
@@ -289,17 +420,16 @@ public final class Alarm implements Parcelable {
                 return -1;
             }
 
-            int today = (c.get(Calendar.DAY_OF_WEEK) + 5) % 7;
+            return getNextAlarm((c.get(Calendar.DAY_OF_WEEK) + 5) % 7);
+        }
 
-            int day = 0;
-            int dayCount = 0;
-            for (; dayCount < 7; dayCount++) {
-                day = (today + dayCount) % 7;
-                if (isSet(day)) {
-                    break;
-                }
+        // returns number of days from today until next alarm, today counted
+        // from 0 = Monday
+        int getNextAlarm(int today) {
+            if (mDays == 0) {
+                return -1;
             }
-            return dayCount;
+            return NEXT_DAY[(mDays & ALL_DAYS) * 7 + today];
         }
     }
 }
@@ -92,7 +92,7 @@ public class AlarmAlert extends AlarmAlertFullScreen {
         } else {
             // Launch the full screen activity but do not turn the screen on.
             Intent i = new Intent(this, AlarmAlertFullScreen.class);
-            i.putExtra(Alarms.ALARM_INTENT_EXTRA, mAlarm);
+            i.putExtra(Alarms.ALARM_RAW_DATA, AlarmCodec.encode(mAlarm));
             i.putExtra(SCREEN_OFF, true);
             startActivity(i);
             finish();
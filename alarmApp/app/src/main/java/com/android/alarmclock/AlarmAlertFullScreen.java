@@ -70,7 +70,7 @@ public class AlarmAlertFullScreen extends Activity {
     private BroadcastReceiver mReceiver = new BroadcastReceiver() {
         @Override
         public void onReceive(Context context, Intent intent) {
-            Alarm alarm = intent.getParcelableExtra(Alarms.ALARM_INTENT_EXTRA);
+            Alarm alarm = Alarms.getAlarm(intent);
             if (alarm != null && mAlarm.id == alarm.id) {
                 dismiss(true);
             }
@@ -83,6 +83,10 @@ public class AlarmAlertFullScreen extends Activity {
     protected void onCreate(Bundle icicle) {
         super.onCreate(icicle);
 
+        // The alarm is dismissed through the detector, so look up the camera and load the
+        // model while the alert is showing.
+        DetectorActivity.prewarm(this);
+
         // Set ads
         MobileAds.initialize(this, new OnInitializationCompleteListener() {
             @Override
@@ -95,7 +99,7 @@ public class AlarmAlertFullScreen extends Activity {
         // ca-app-pub-8933690005967310/9685842587
         mInterstitialAd.loadAd(new AdRequest.Builder().build());
 
-        mAlarm = getIntent().getParcelableExtra(Alarms.ALARM_INTENT_EXTRA);
+        mAlarm = Alarms.getAlarm(getIntent());
 
         // Get the volume/camera button behavior setting
         final String vol =
@@ -248,7 +252,7 @@ public class AlarmAlertFullScreen extends Activity {
 
         if (Log.LOGV) Log.v("AlarmAlert.OnNewIntent()");
 
-        mAlarm = intent.getParcelableExtra(Alarms.ALARM_INTENT_EXTRA);
+        mAlarm = Alarms.getAlarm(intent);
 
         setTitle();
     }
@@ -21,10 +21,12 @@ package com.android.alarmclock;
  */
 import android.app.Activity;
 import android.app.AlertDialog;
+import android.content.ContentResolver;
 import android.content.Context;
 import android.content.DialogInterface;
 import android.content.Intent;
 import android.content.res.Configuration;
+import android.database.ContentObserver;
 import android.database.Cursor;
 import android.net.Uri;
 import android.os.Bundle;
@@ -40,15 +42,18 @@ import android.view.ViewGroup;
 import android.widget.AdapterView;
 import android.widget.AdapterView.AdapterContextMenuInfo;
 import android.widget.AdapterView.OnItemClickListener;
+import android.widget.BaseAdapter;
 import android.widget.Button;
 import android.widget.CheckBox;
-import android.widget.CursorAdapter;
 import android.widget.ListView;
 import android.widget.TextView;
 import android.widget.Toast;
 
 import java.text.DateFormatSymbols;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * AlarmClock application.
@@ -57,15 +62,34 @@ public class AlarmClock extends Activity implements OnItemClickListener {
 
     static final String PREFERENCES = "AlarmClock";
 
-    // Cap alarm count 12
-    static final int MAX_ALARM_COUNT = 12;
+    // Cap alarm count. Scheduling and the list do not scan every alarm, so
+    // this only guards against runaway inserts.
+    static final int MAX_ALARM_COUNT = 10000;
 
     // False for production.
     static final boolean DEBUG = false;
 
     private LayoutInflater mFactory;
     private ListView mAlarmsList;
-    private Cursor mCursor;
+    private AlarmTimeAdapter mAdapter;
+
+    // The list reads alarms a page at a time as it is scrolled, so only the
+    // rows the user has reached are turned into Alarm objects.
+    static final int LIST_PAGE_SIZE = 100;
+    // Start reading the next page when a row this close to the end is shown.
+    private static final int LIST_PREFETCH = 20;
+
+    // Loads the alarms off the main thread. The fields below are only
+    // touched on the main thread.
+    private final ExecutorService mLoader = Executors.newSingleThreadExecutor();
+    private boolean mLoading;
+    private boolean mReloadPending;
+    private boolean mNextPagePending;
+    // False once the list holds the last alarm.
+    private boolean mHasMore;
+    // Number of alarms in the database, for MAX_ALARM_COUNT.
+    private int mAlarmCount;
+    private ContentObserver mObserver;
 
     private String mAm, mPm;
 
@@ -73,73 +97,150 @@ public class AlarmClock extends Activity implements OnItemClickListener {
         R.layout.digital_clock
     };
 
-    private class AlarmTimeAdapter extends CursorAdapter {
-        public AlarmTimeAdapter(Context context, Cursor cursor) {
-            super(context, cursor);
+    private class AlarmTimeAdapter extends BaseAdapter {
+        private ArrayList<Alarm> mAlarms = new ArrayList<Alarm>();
+
+        public int getCount() {
+            return mAlarms.size();
+        }
+
+        public Alarm getItem(int position) {
+            return mAlarms.get(position);
+        }
+
+        public long getItemId(int position) {
+            return mAlarms.get(position).id;
+        }
+
+        @Override
+        public boolean hasStableIds() {
+            return true;
         }
 
-        public View newView(Context context, Cursor cursor, ViewGroup parent) {
+        public View getView(int position, View convertView, ViewGroup parent) {
+            if (position >= mAlarms.size() - LIST_PREFETCH) {
+                loadNextPage();
+            }
+            View view = convertView != null ? convertView : newView(parent);
+            bindView(view, mAlarms.get(position));
+            return view;
+        }
+
+        /**
+         * Replaces the alarms. If the rows are the same alarms in the same
+         * order, as after a toggle or an edit that keeps the sort position,
+         * only the visible rows whose contents changed are bound again.
+         */
+        void setAlarms(ArrayList<Alarm> alarms) {
+            final ArrayList<Alarm> old = mAlarms;
+            mAlarms = alarms;
+
+            boolean sameRows = old.size() == alarms.size();
+            for (int i = 0; sameRows && i < alarms.size(); i++) {
+                sameRows = old.get(i).id == alarms.get(i).id;
+            }
+            if (!sameRows) {
+                notifyDataSetChanged();
+                return;
+            }
+
+            final int first = mAlarmsList.getFirstVisiblePosition();
+            for (int i = 0; i < mAlarmsList.getChildCount(); i++) {
+                final int position = first + i;
+                if (position < alarms.size()
+                        && !showsSame(old.get(position), alarms.get(position))) {
+                    bindView(mAlarmsList.getChildAt(i), alarms.get(position));
+                }
+            }
+        }
+
+        // Adds the next page of alarms to the end of the list.
+        void appendAlarms(ArrayList<Alarm> alarms) {
+            if (!alarms.isEmpty()) {
+                mAlarms.addAll(alarms);
+                notifyDataSetChanged();
+            }
+        }
+
+        // Compares what a row shows of an alarm.
+        private boolean showsSame(Alarm a, Alarm b) {
+            return a.enabled == b.enabled
+                    && a.hour == b.hour
+                    && a.minutes == b.minutes
+                    && a.daysOfWeek.getCoded() == b.daysOfWeek.getCoded()
+                    && (a.label == null ? b.label == null : a.label.equals(b.label));
+        }
+
+        private View newView(ViewGroup parent) {
             View ret = mFactory.inflate(R.layout.alarm_time, parent, false);
 
             ((TextView) ret.findViewById(R.id.am)).setText(mAm);
             ((TextView) ret.findViewById(R.id.pm)).setText(mPm);
 
-            DigitalClock digitalClock =
+            ViewHolder holder = new ViewHolder();
+            holder.onButton = (CheckBox) ret.findViewById(R.id.alarmButton);
+            holder.onButton.setOnClickListener(mOnButtonListener);
+            holder.digitalClock =
                     (DigitalClock) ret.findViewById(R.id.digitalClock);
-            digitalClock.setLive(false);
+            holder.digitalClock.setLive(false);
+            holder.daysOfWeek =
+                    (TextView) holder.digitalClock.findViewById(R.id.daysOfWeek);
+            holder.label =
+                    (TextView) holder.digitalClock.findViewById(R.id.label);
+            ret.setTag(holder);
             return ret;
         }
 
-        public void bindView(View view, Context context, Cursor cursor) {
-            final Alarm alarm = new Alarm(cursor);
-
-            CheckBox onButton = (CheckBox) view.findViewById(R.id.alarmButton);
-            onButton.setChecked(alarm.enabled);
-            onButton.setOnClickListener(new OnClickListener() {
-                    public void onClick(View v) {
-                        boolean isChecked = ((CheckBox) v).isChecked();
-                        Alarms.enableAlarm(AlarmClock.this, alarm.id,
-                            isChecked);
-                        if (isChecked) {
-                            SetAlarm.popAlarmSetToast(AlarmClock.this,
-                                alarm.hour, alarm.minutes, alarm.daysOfWeek);
-                        }
-                    }
-            });
+        private void bindView(View view, Alarm alarm) {
+            final ViewHolder holder = (ViewHolder) view.getTag();
 
-            DigitalClock digitalClock =
-                    (DigitalClock) view.findViewById(R.id.digitalClock);
+            holder.onButton.setChecked(alarm.enabled);
+            // The shared listener finds the alarm through the tag.
+            holder.onButton.setTag(alarm);
 
             // set the alarm text
-            final Calendar c = Calendar.getInstance();
-            c.set(Calendar.HOUR_OF_DAY, alarm.hour);
-            c.set(Calendar.MINUTE, alarm.minutes);
-            digitalClock.updateTime(c);
+            holder.digitalClock.updateTime(alarm.hour, alarm.minutes);
 
             // Set the repeat text or leave it blank if it does not repeat.
-            TextView daysOfWeekView =
-                    (TextView) digitalClock.findViewById(R.id.daysOfWeek);
             final String daysOfWeekStr =
                     alarm.daysOfWeek.toString(AlarmClock.this, false);
             if (daysOfWeekStr != null && daysOfWeekStr.length() != 0) {
-                daysOfWeekView.setText(daysOfWeekStr);
-                daysOfWeekView.setVisibility(View.VISIBLE);
+                holder.daysOfWeek.setText(daysOfWeekStr);
+                holder.daysOfWeek.setVisibility(View.VISIBLE);
             } else {
-                daysOfWeekView.setVisibility(View.GONE);
+                holder.daysOfWeek.setVisibility(View.GONE);
             }
 
             // Display the label
-            TextView labelView =
-                    (TextView) digitalClock.findViewById(R.id.label);
             if (alarm.label != null && alarm.label.length() != 0) {
-                labelView.setText(alarm.label);
-                labelView.setVisibility(View.VISIBLE);
+                holder.label.setText(alarm.label);
+                holder.label.setVisibility(View.VISIBLE);
             } else {
-                labelView.setVisibility(View.GONE);
+                holder.label.setVisibility(View.GONE);
             }
         }
+
+        private final OnClickListener mOnButtonListener = new OnClickListener() {
+            public void onClick(View v) {
+                final Alarm alarm = (Alarm) v.getTag();
+                boolean isChecked = ((CheckBox) v).isChecked();
+                Alarms.enableAlarm(AlarmClock.this, alarm.id, isChecked);
+                if (isChecked) {
+                    SetAlarm.popAlarmSetToast(AlarmClock.this,
+                        alarm.hour, alarm.minutes, alarm.daysOfWeek);
+                }
+            }
+        };
     };
 
+    // Views of a list row, kept in the row's tag.
+    private static final class ViewHolder {
+        CheckBox onButton;
+        DigitalClock digitalClock;
+        TextView daysOfWeek;
+        TextView label;
+    }
+
     @Override
     public boolean onContextItemSelected(final MenuItem item) {
         final AdapterContextMenuInfo info =
@@ -163,9 +264,7 @@ public class AlarmClock extends Activity implements OnItemClickListener {
                 return true;
 
             case R.id.enable_alarm:
-                final Cursor c = (Cursor) mAlarmsList.getAdapter()
-                        .getItem(info.position);
-                final Alarm alarm = new Alarm(c);
+                final Alarm alarm = mAdapter.getItem(info.position);
                 Alarms.enableAlarm(this, alarm.id, !alarm.enabled);
                 if (!alarm.enabled) {
                     SetAlarm.popAlarmSetToast(this, alarm.hour, alarm.minutes,
@@ -188,9 +287,93 @@ public class AlarmClock extends Activity implements OnItemClickListener {
         mPm = ampm[1];
 
         mFactory = LayoutInflater.from(this);
-        mCursor = Alarms.getAlarmsCursor(getContentResolver());
+        mAdapter = new AlarmTimeAdapter();
 
         updateLayout();
+
+        mObserver = new ContentObserver(mHandler) {
+            @Override
+            public void onChange(boolean selfChange) {
+                loadAlarms();
+            }
+        };
+        getContentResolver().registerContentObserver(
+                Alarm.Columns.CONTENT_URI, true, mObserver);
+        loadAlarms();
+    }
+
+    /**
+     * Reads the alarms the list shows again on the loader thread. A change
+     * that arrives during a load is picked up by one more load.
+     */
+    private void loadAlarms() {
+        if (mLoading) {
+            mReloadPending = true;
+            return;
+        }
+        // Read as many rows as the list holds, so that it keeps its place.
+        load(null, Math.max(mAdapter.getCount(), LIST_PAGE_SIZE));
+    }
+
+    // Reads the page after the last alarm in the list.
+    private void loadNextPage() {
+        if (!mHasMore) {
+            return;
+        }
+        if (mLoading) {
+            mNextPagePending = true;
+            return;
+        }
+        load(mAdapter.getItem(mAdapter.getCount() - 1), LIST_PAGE_SIZE);
+    }
+
+    // Reads up to limit alarms after the given one, or from the start and
+    // with the alarm count if after is null.
+    private void load(final Alarm after, final int limit) {
+        mLoading = true;
+        final ContentResolver resolver = getContentResolver();
+        mLoader.execute(new Runnable() {
+            public void run() {
+                final ArrayList<Alarm> alarms = new ArrayList<Alarm>();
+                Cursor cursor = Alarms.getAlarmsPage(resolver, after, limit);
+                if (cursor != null) {
+                    while (cursor.moveToNext()) {
+                        alarms.add(new Alarm(cursor));
+                    }
+                    cursor.close();
+                }
+                final int count =
+                        after == null ? Alarms.getAlarmCount(resolver) : -1;
+                mHandler.post(new Runnable() {
+                    public void run() {
+                        onAlarmsLoaded(after, alarms, alarms.size() == limit,
+                                count);
+                    }
+                });
+            }
+        });
+    }
+
+    private void onAlarmsLoaded(Alarm after, ArrayList<Alarm> alarms,
+            boolean hasMore, int count) {
+        mLoading = false;
+        if (isDestroyed()) {
+            return;
+        }
+        mHasMore = hasMore;
+        if (after == null) {
+            mAlarmCount = count;
+            mAdapter.setAlarms(alarms);
+        } else {
+            mAdapter.appendAlarms(alarms);
+        }
+        if (mReloadPending) {
+            mReloadPending = false;
+            loadAlarms();
+        } else if (mNextPagePending) {
+            mNextPagePending = false;
+            loadNextPage();
+        }
     }
 
     private final Handler mHandler = new Handler();
@@ -209,7 +392,7 @@ public class AlarmClock extends Activity implements OnItemClickListener {
     private void updateLayout() {
         setContentView(R.layout.alarm_clock);
         mAlarmsList = (ListView) findViewById(R.id.alarms_list);
-        mAlarmsList.setAdapter(new AlarmTimeAdapter(this, mCursor));
+        mAlarmsList.setAdapter(mAdapter);
         mAlarmsList.setVerticalScrollBarEnabled(true);
         mAlarmsList.setOnItemClickListener(this);
         mAlarmsList.setOnCreateContextMenuListener(this);
@@ -224,7 +407,8 @@ public class AlarmClock extends Activity implements OnItemClickListener {
     protected void onDestroy() {
         super.onDestroy();
         ToastMaster.cancelToast();
-        mCursor.deactivate();
+        getContentResolver().unregisterContentObserver(mObserver);
+        mLoader.shutdownNow();
     }
 
     @Override
@@ -243,9 +427,7 @@ public class AlarmClock extends Activity implements OnItemClickListener {
 
         // Use the current item to create a custom view for the header.
         final AdapterContextMenuInfo info = (AdapterContextMenuInfo) menuInfo;
-        final Cursor c =
-                (Cursor) mAlarmsList.getAdapter().getItem((int) info.position);
-        final Alarm alarm = new Alarm(c);
+        final Alarm alarm = mAdapter.getItem(info.position);
 
         // Construct the Calendar to compute the time.
         final Calendar cal = Calendar.getInstance();
@@ -278,7 +460,7 @@ public class AlarmClock extends Activity implements OnItemClickListener {
     @Override
     public boolean onPrepareOptionsMenu(Menu menu) {
         menu.findItem(R.id.menu_add_alarm).setVisible(
-                mAlarmsList.getAdapter().getCount() < MAX_ALARM_COUNT);
+                mAlarmCount < MAX_ALARM_COUNT);
         return super.onPrepareOptionsMenu(menu);
     }
 
@@ -308,7 +490,7 @@ public class AlarmClock extends Activity implements OnItemClickListener {
     }
 
     public void addBtnClicked(View v) {
-        if(mAlarmsList.getAdapter().getCount() < MAX_ALARM_COUNT) {
+        if(mAlarmCount < MAX_ALARM_COUNT) {
             Uri uri = Alarms.addAlarm(getContentResolver());
 
             String segment = uri.getPathSegments().get(1);
@@ -0,0 +1,230 @@
+/*
+ * Copyright (C) 2009 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.alarmclock;
+
+import java.io.UnsupportedEncodingException;
+
+/**
+ * Compact binary form of an Alarm, passed from AlarmManager to the receiver
+ * and on to the alert and the klaxon.
+ *
+ * Layout, big-endian:
+ *   byte[4] MAGIC
+ *   byte    version
+ *   int     id
+ *   byte    flags: enabled, vibrate, silent
+ *   byte    hour
+ *   byte    minutes
+ *   byte    days of week
+ *   long    time
+ *   varint  alert: an index into ALERT_TABLE, or ALERT_TABLE.length plus
+ *           the length of the UTF-8 alert string that follows
+ *   varint  length of the UTF-8 label that follows
+ *
+ * Only the alert string is stored; the Uri is parsed when it is used.
+ *
+ * Alarms set before this format existed carry Parcel data instead. Read as
+ * a native-order int, as the id at the start of such data would be, the
+ * magic is negative, so it never matches an alarm id.
+ */
+final class AlarmCodec {
+
+    static final byte[] MAGIC = { (byte) 0xac, 0x1a, 0x7e, (byte) 0xf1 };
+    static final int VERSION = 1;
+
+    private static final int FLAG_ENABLED = 1;
+    private static final int FLAG_VIBRATE = 1 << 1;
+    private static final int FLAG_SILENT = 1 << 2;
+
+    // Alert strings that need no bytes of their own. "" is the default
+    // alarm ringtone.
+    private static final String[] ALERT_TABLE = {
+        "", Alarms.ALARM_ALERT_SILENT
+    };
+
+    // magic, version, id, flags, hour, minutes, days, time
+    private static final int FIXED_SIZE = 4 + 1 + 4 + 1 + 1 + 1 + 1 + 8;
+
+    private AlarmCodec() {
+    }
+
+    static byte[] encode(Alarm alarm) {
+        final String alertString = alarm.getAlertString();
+        int alertIndex = indexOfAlert(alertString);
+        final byte[] alert = alertIndex < 0 ? utf8(alertString) : null;
+        final byte[] label = utf8(alarm.label);
+        if (alert != null) {
+            alertIndex = ALERT_TABLE.length + alert.length;
+        }
+
+        final byte[] out = new byte[FIXED_SIZE
+                + varintSize(alertIndex) + (alert != null ? alert.length : 0)
+                + varintSize(label.length) + label.length];
+        System.arraycopy(MAGIC, 0, out, 0, MAGIC.length);
+        int pos = MAGIC.length;
+        out[pos++] = (byte) VERSION;
+        pos = putInt(out, pos, alarm.id);
+        out[pos++] = (byte) ((alarm.enabled ? FLAG_ENABLED : 0)
+                | (alarm.vibrate ? FLAG_VIBRATE : 0)
+                | (alarm.silent ? FLAG_SILENT : 0));
+        out[pos++] = (byte) alarm.hour;
+        out[pos++] = (byte) alarm.minutes;
+        out[pos++] = (byte) alarm.daysOfWeek.getCoded();
+        pos = putInt(out, pos, (int) (alarm.time >>> 32));
+        pos = putInt(out, pos, (int) alarm.time);
+        pos = putVarint(out, pos, alertIndex);
+        if (alert != null) {
+            System.arraycopy(alert, 0, out, pos, alert.length);
+            pos += alert.length;
+        }
+        pos = putVarint(out, pos, label.length);
+        System.arraycopy(label, 0, out, pos, label.length);
+        return out;
+    }
+
+    /**
+     * Returns whether data starts with MAGIC, i.e. was written by encode()
+     * in this or another version.
+     */
+    static boolean isEncoded(byte[] data) {
+        if (data == null || data.length < MAGIC.length) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (data[i] != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the alarm encoded in data, or null if data was not written by
+     * encode(), was written by a different version or is truncated.
+     */
+    static Alarm decode(byte[] data) {
+        if (!isEncoded(data) || data.length < FIXED_SIZE
+                || (data[MAGIC.length] & 0xff) != VERSION) {
+            return null;
+        }
+        final int[] pos = { MAGIC.length + 1 };
+        try {
+            final int id = getInt(data, pos);
+            final int flags = data[pos[0]++];
+            final int hour = data[pos[0]++];
+            final int minutes = data[pos[0]++];
+            final int days = data[pos[0]++] & 0xff;
+            final long time = ((long) getInt(data, pos) << 32)
+                    | (getInt(data, pos) & 0xffffffffL);
+
+            final int alertIndex = getVarint(data, pos);
+            final String alert;
+            if (alertIndex < ALERT_TABLE.length) {
+                alert = ALERT_TABLE[alertIndex];
+            } else {
+                alert = getString(data, pos, alertIndex - ALERT_TABLE.length);
+            }
+            final String label = getString(data, pos, getVarint(data, pos));
+
+            return new Alarm(id, (flags & FLAG_ENABLED) != 0, hour, minutes,
+                    days, time, (flags & FLAG_VIBRATE) != 0,
+                    (flags & FLAG_SILENT) != 0, label, alert);
+        } catch (ArrayIndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+    private static int indexOfAlert(String alert) {
+        if (alert == null) {
+            return 0;
+        }
+        for (int i = 0; i < ALERT_TABLE.length; i++) {
+            if (ALERT_TABLE[i].equals(alert)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int putInt(byte[] out, int pos, int value) {
+        out[pos] = (byte) (value >>> 24);
+        out[pos + 1] = (byte) (value >>> 16);
+        out[pos + 2] = (byte) (value >>> 8);
+        out[pos + 3] = (byte) value;
+        return pos + 4;
+    }
+
+    private static int getInt(byte[] in, int[] pos) {
+        final int p = pos[0];
+        pos[0] = p + 4;
+        return ((in[p] & 0xff) << 24) | ((in[p + 1] & 0xff) << 16)
+                | ((in[p + 2] & 0xff) << 8) | (in[p + 3] & 0xff);
+    }
+
+    private static int varintSize(int value) {
+        int size = 1;
+        while ((value >>>= 7) != 0) {
+            size++;
+        }
+        return size;
+    }
+
+    private static int putVarint(byte[] out, int pos, int value) {
+        while ((value & ~0x7f) != 0) {
+            out[pos++] = (byte) ((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out[pos++] = (byte) value;
+        return pos;
+    }
+
+    private static int getVarint(byte[] in, int[] pos) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            final int b = in[pos[0]++];
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new ArrayIndexOutOfBoundsException("varint too long");
+    }
+
+    private static String getString(byte[] in, int[] pos, int length) {
+        if (length < 0 || pos[0] + length > in.length) {
+            throw new ArrayIndexOutOfBoundsException("string past the end");
+        }
+        try {
+            final String s = new String(in, pos[0], length, "UTF-8");
+            pos[0] += length;
+            return s;
+        } catch (UnsupportedEncodingException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static byte[] utf8(String s) {
+        if (s == null) {
+            return new byte[0];
+        }
+        try {
+            return s.getBytes("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -22,7 +22,8 @@ import android.content.BroadcastReceiver;
 
 /**
  * Sets alarm on ACTION_BOOT_COMPLETED.  Resets alarm on
- * TIME_SET, TIMEZONE_CHANGED
+ * TIME_SET, TIMEZONE_CHANGED, and on MY_PACKAGE_REPLACED so that the
+ * pending alert carries this version's data format.
  */
 public class AlarmInitReceiver extends BroadcastReceiver {
 
@@ -35,10 +36,16 @@ public class AlarmInitReceiver extends BroadcastReceiver {
             Log.e("AlarmInitReceiver: FAILURE unable to get content resolver.  Alarms inactive.");
             return;
         }
+        // The clock or the time zone may have moved, so the cached zone and
+        // fire times of repeating alarms are stale.
+        AlarmTime.onTimeZoneChanged();
+        AlarmSchedule.getInstance(context).invalidate();
         if (action.equals(Intent.ACTION_BOOT_COMPLETED)) {
+            // Clearing the snooze sets the next alert, which disables the
+            // alarms that expired while the device was off in one write.
             Alarms.saveSnoozeAlert(context, -1, -1);
-            Alarms.disableExpiredAlarms(context);
+        } else {
+            Alarms.setNextAlert(context);
         }
-        Alarms.setNextAlert(context);
     }
 }
@@ -116,8 +116,7 @@ public class AlarmKlaxon extends Service {
             return START_NOT_STICKY;
         }
 
-        final Alarm alarm = intent.getParcelableExtra(
-                Alarms.ALARM_INTENT_EXTRA);
+        final Alarm alarm = Alarms.getAlarm(intent);
 
         if (alarm == null) {
             Log.v("AlarmKlaxon failed to parse the alarm from the intent");
@@ -141,7 +140,7 @@ public class AlarmKlaxon extends Service {
         long millis = System.currentTimeMillis() - mStartTime;
         int minutes = (int) Math.round(millis / 60000.0);
         Intent alarmKilled = new Intent(Alarms.ALARM_KILLED);
-        alarmKilled.putExtra(Alarms.ALARM_INTENT_EXTRA, alarm);
+        alarmKilled.putExtra(Alarms.ALARM_RAW_DATA, AlarmCodec.encode(alarm));
         alarmKilled.putExtra(Alarms.ALARM_KILLED_TIMEOUT, minutes);
         sendBroadcast(alarmKilled);
     }
@@ -154,11 +153,11 @@ public class AlarmKlaxon extends Service {
         stop();
 
         if (Log.LOGV) {
-            Log.v("AlarmKlaxon.play() " + alarm.id + " alert " + alarm.alert);
+            Log.v("AlarmKlaxon.play() " + alarm.id + " alert " + alarm.getAlert());
         }
 
         if (!alarm.silent) {
-            Uri alert = alarm.alert;
+            Uri alert = alarm.getAlert();
             // Fall back on the default alarm if the database does not have an alarm stored.
             if (alert == null) {
                 alert = RingtoneManager.getDefaultUri(
@@ -44,10 +44,12 @@ public class AlarmProvider extends ContentProvider {
 
     private static class DatabaseHelper extends SQLiteOpenHelper {
         private static final String DATABASE_NAME = "alarms.db";
-        private static final int DATABASE_VERSION = 5;
+        private static final int DATABASE_VERSION = 7;
 
         public DatabaseHelper(Context context) {
             super(context, DATABASE_NAME, null, DATABASE_VERSION);
+            // Lets the receivers read while the UI writes.
+            setWriteAheadLoggingEnabled(true);
         }
 
         @Override
@@ -62,6 +64,7 @@ public class AlarmProvider extends ContentProvider {
                        "vibrate INTEGER, " +
                        "message TEXT, " +
                        "alert TEXT);");
+            createIndexes(db);
 
             // insert default alarms
             String insertMe = "INSERT INTO alarms " +
@@ -72,14 +75,32 @@ public class AlarmProvider extends ContentProvider {
             db.execSQL(insertMe + "(9, 00, 0, 0, 0, 1, '', '');");
         }
 
+        // Serves the enabled alarm scan and the expiry update, and the list
+        // in its sort order.
+        private static void createIndexes(SQLiteDatabase db) {
+            db.execSQL("CREATE INDEX IF NOT EXISTS alarms_enabled_alarmtime " +
+                       "ON alarms (enabled, alarmtime);");
+            db.execSQL("CREATE INDEX IF NOT EXISTS alarms_hour_minutes " +
+                       "ON alarms (hour, minutes);");
+        }
+
         @Override
         public void onUpgrade(SQLiteDatabase db, int oldVersion, int currentVersion) {
+            if (oldVersion < 5) {
+                if (Log.LOGV) Log.v(
+                        "Upgrading alarms database from version " +
+                        oldVersion + " to " + currentVersion +
+                        ", which will destroy all old data");
+                db.execSQL("DROP TABLE IF EXISTS alarms");
+                onCreate(db);
+                return;
+            }
             if (Log.LOGV) Log.v(
                     "Upgrading alarms database from version " +
-                    oldVersion + " to " + currentVersion +
-                    ", which will destroy all old data");
-            db.execSQL("DROP TABLE IF EXISTS alarms");
-            onCreate(db);
+                    oldVersion + " to " + currentVersion);
+            if (oldVersion < 7) {
+                createIndexes(db);
+            }
         }
     }
 
@@ -112,9 +133,11 @@ public class AlarmProvider extends ContentProvider {
                 throw new IllegalArgumentException("Unknown URL " + url);
         }
 
+        String limit = url.getQueryParameter(Alarm.Columns.QUERY_LIMIT);
+
         SQLiteDatabase db = mOpenHelper.getReadableDatabase();
         Cursor ret = qb.query(db, projectionIn, selection, selectionArgs,
-                              null, null, sort);
+                              null, null, sort, limit);
 
         if (ret == null) {
             if (Log.LOGV) Log.v("Alarms.query: failed");
@@ -145,10 +168,27 @@ public class AlarmProvider extends ContentProvider {
         int match = sURLMatcher.match(url);
         SQLiteDatabase db = mOpenHelper.getWritableDatabase();
         switch (match) {
+            case ALARMS: {
+                count = db.update("alarms", values, where, whereArgs);
+                if (count > 0) {
+                    AlarmSchedule schedule =
+                            AlarmSchedule.getInstance(getContext());
+                    if (isDisableExpired(values, where)) {
+                        schedule.onExpiredDisabled(Long.parseLong(whereArgs[0]));
+                    } else {
+                        schedule.onTableChanged();
+                    }
+                }
+                break;
+            }
             case ALARMS_ID: {
                 String segment = url.getPathSegments().get(1);
                 rowId = Long.parseLong(segment);
                 count = db.update("alarms", values, "_id=" + rowId, null);
+                if (count > 0) {
+                    AlarmSchedule.getInstance(getContext())
+                            .onRowWritten(db, rowId);
+                }
                 break;
             }
             default: {
@@ -161,6 +201,14 @@ public class AlarmProvider extends ContentProvider {
         return count;
     }
 
+    // True for the bulk update of Alarms.disableExpiredAlarms, whose rows the
+    // schedule can find on its own.
+    private static boolean isDisableExpired(ContentValues values, String where) {
+        return Alarm.Columns.WHERE_EXPIRED.equals(where) && values.size() == 1
+                && Integer.valueOf(0).equals(
+                        values.getAsInteger(Alarm.Columns.ENABLED));
+    }
+
     @Override
     public Uri insert(Uri url, ContentValues initialValues) {
         if (sURLMatcher.match(url) != ALARMS) {
@@ -203,6 +251,7 @@ public class AlarmProvider extends ContentProvider {
             throw new SQLException("Failed to insert row into " + url);
         }
         if (Log.LOGV) Log.v("Added alarm rowId = " + rowId);
+        AlarmSchedule.getInstance(getContext()).onRowWritten(db, rowId);
 
         Uri newUrl = ContentUris.withAppendedId(Alarm.Columns.CONTENT_URI, rowId);
         getContext().getContentResolver().notifyChange(newUrl, null);
@@ -216,6 +265,7 @@ public class AlarmProvider extends ContentProvider {
         switch (sURLMatcher.match(url)) {
             case ALARMS:
                 count = db.delete("alarms", where, whereArgs);
+                AlarmSchedule.getInstance(getContext()).onTableChanged();
                 break;
             case ALARMS_ID:
                 String segment = url.getPathSegments().get(1);
@@ -226,6 +276,9 @@ public class AlarmProvider extends ContentProvider {
                     where = "_id=" + segment + " AND (" + where + ")";
                 }
                 count = db.delete("alarms", where, whereArgs);
+                if (count > 0) {
+                    AlarmSchedule.getInstance(getContext()).onRowDeleted(rowId);
+                }
                 break;
             default:
                 throw new IllegalArgumentException("Cannot delete from URL: " + url);
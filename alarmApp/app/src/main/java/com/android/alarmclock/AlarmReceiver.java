@@ -26,7 +26,6 @@ import android.app.PendingIntent;
 import android.content.Context;
 import android.content.Intent;
 import android.content.BroadcastReceiver;
-import android.os.Parcel;
 import androidx.core.app.NotificationCompat;
 
 import java.text.SimpleDateFormat;
@@ -45,8 +44,7 @@ public class AlarmReceiver extends BroadcastReceiver {
     public void onReceive(Context context, Intent intent) {
         if (Alarms.ALARM_KILLED.equals(intent.getAction())) {
             // The alarm has been killed, update the notification
-            updateNotification(context, (Alarm)
-                    intent.getParcelableExtra(Alarms.ALARM_INTENT_EXTRA),
+            updateNotification(context, Alarms.getAlarm(intent),
                     intent.getIntExtra(Alarms.ALARM_KILLED_TIMEOUT, -1));
             return;
         } else if (Alarms.CANCEL_SNOOZE.equals(intent.getAction())) {
@@ -54,18 +52,14 @@ public class AlarmReceiver extends BroadcastReceiver {
             return;
         }
 
-        Alarm alarm = null;
         // Grab the alarm from the intent. Since the remote AlarmManagerService
         // fills in the Intent to add some extra data, it must unparcel the
         // Alarm object. It throws a ClassNotFoundException when unparcelling.
-        // To avoid this, do the marshalling ourselves.
+        // To avoid this, the alarm is passed encoded by AlarmCodec. The same
+        // bytes are handed on to the alert, the klaxon and the notification
+        // rather than parcelling the alarm again for each.
         final byte[] data = intent.getByteArrayExtra(Alarms.ALARM_RAW_DATA);
-        if (data != null) {
-            Parcel in = Parcel.obtain();
-            in.unmarshall(data, 0, data.length);
-            in.setDataPosition(0);
-            alarm = Alarm.CREATOR.createFromParcel(in);
-        }
+        final Alarm alarm = data != null ? Alarms.readRawData(data) : null;
 
         if (alarm == null) {
             Log.v("AlarmReceiver failed to parse the alarm from the intent");
@@ -105,7 +99,7 @@ public class AlarmReceiver extends BroadcastReceiver {
         // launch UI, explicitly stating that this is not due to user action
         // so that the current app's notification management is not disturbed
         Intent alarmAlert = new Intent(context, c);
-        alarmAlert.putExtra(Alarms.ALARM_INTENT_EXTRA, alarm);
+        alarmAlert.putExtra(Alarms.ALARM_RAW_DATA, data);
         alarmAlert.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK
                 | Intent.FLAG_ACTIVITY_NO_USER_ACTION);
         context.startActivity(alarmAlert);
@@ -123,7 +117,7 @@ public class AlarmReceiver extends BroadcastReceiver {
 
         // Play the alarm alert and vibrate the device.
         Intent playAlarm = new Intent(Alarms.ALARM_ALERT_ACTION);
-        playAlarm.putExtra(Alarms.ALARM_INTENT_EXTRA, alarm);
+        playAlarm.putExtra(Alarms.ALARM_RAW_DATA, data);
         playAlarm.setPackage("com.android.alarmclock");
         context.startService(playAlarm);
 
@@ -131,7 +125,7 @@ public class AlarmReceiver extends BroadcastReceiver {
         // dialog. No need to check for fullscreen since this will always be
         // launched from a user action.
         Intent notify = new Intent(context, AlarmAlert.class);
-        notify.putExtra(Alarms.ALARM_INTENT_EXTRA, alarm);
+        notify.putExtra(Alarms.ALARM_RAW_DATA, data);
         PendingIntent pendingNotify = PendingIntent.getActivity(context,
                 alarm.id, notify, 0);
 
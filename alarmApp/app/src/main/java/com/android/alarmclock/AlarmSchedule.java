@@ -0,0 +1,360 @@
+/*
+ * Copyright (C) 2009 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.alarmclock;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.SparseArray;
+
+import java.util.ArrayList;
+
+/**
+ * Process-wide index of the enabled alarms, ordered by the time each one
+ * fires next.
+ *
+ * The index is loaded from the provider on first use. After that
+ * AlarmProvider reports every write to it, so picking the next alert is a
+ * look at the top of a min-heap instead of a query and a scan over all
+ * enabled alarms.
+ */
+final class AlarmSchedule {
+
+    private static final int LOAD_PAGE_SIZE = 500;
+
+    private static AlarmSchedule sInstance;
+
+    private final Context mContext;
+
+    // Binary min-heap on Entry.time; mHeap[0] fires first.
+    private Entry[] mHeap = new Entry[16];
+    private int mSize;
+    private final SparseArray<Entry> mById = new SparseArray<Entry>();
+
+    private boolean mLoaded;
+    // Bumped on every write, so that a load which raced with a write is
+    // thrown away and done again.
+    private int mGeneration;
+
+    private static final class Entry {
+        final Alarm alarm;
+        // When the alarm fires next, in UTC milliseconds.
+        long time;
+        // Position in mHeap.
+        int index;
+
+        Entry(Alarm alarm) {
+            this.alarm = alarm;
+            time = nextTime(alarm);
+        }
+    }
+
+    private AlarmSchedule(Context context) {
+        mContext = context;
+    }
+
+    static synchronized AlarmSchedule getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new AlarmSchedule(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    /**
+     * Drops the process-wide index. The next getInstance() starts a new one
+     * for the context it is given. Used by tests that run against a provider
+     * of their own.
+     */
+    static synchronized void resetInstance() {
+        sInstance = null;
+    }
+
+    /**
+     * Returns a copy of the enabled alarm that fires first, with its time
+     * set to when it fires, or null if no alarm is enabled. Repeating alarms
+     * that are due at or before now are moved on to their next day first. A
+     * one-shot alarm whose time has passed is returned as is; it is up to the
+     * caller to disable it. Only the scheduling columns are filled in.
+     */
+    Alarm peekNext(long now) {
+        ensureLoaded();
+        synchronized (this) {
+            while (mSize > 0) {
+                Entry top = mHeap[0];
+                if (top.alarm.time == 0 && top.time <= now) {
+                    top.time = nextTime(top.alarm);
+                    siftDown(0);
+                    continue;
+                }
+                Alarm alarm = new Alarm(top.alarm);
+                alarm.time = top.time;
+                return alarm;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Drops an alarm from the index, e.g. one that is about to be disabled.
+     */
+    synchronized void remove(int id) {
+        Entry entry = mById.get(id);
+        if (entry != null) {
+            mById.remove(id);
+            removeAt(entry.index);
+        }
+    }
+
+    /**
+     * Recomputes when every repeating alarm fires. Needed when the wall
+     * clock or the time zone changed.
+     */
+    synchronized void invalidate() {
+        if (!mLoaded) {
+            return;
+        }
+        for (int i = 0; i < mSize; i++) {
+            mHeap[i].time = nextTime(mHeap[i].alarm);
+        }
+        heapify();
+    }
+
+    /**
+     * Called by AlarmProvider after the row was inserted or updated.
+     */
+    synchronized void onRowWritten(SQLiteDatabase db, long rowId) {
+        mGeneration++;
+        if (!mLoaded) {
+            return;
+        }
+        Alarm alarm = null;
+        Cursor cursor = db.query("alarms", Alarm.Columns.SCHEDULE_QUERY_COLUMNS,
+                "_id=" + rowId + " AND " + Alarm.Columns.WHERE_ENABLED,
+                null, null, null, null);
+        if (cursor != null) {
+            if (cursor.moveToFirst()) {
+                alarm = Alarm.forScheduling(cursor);
+            }
+            cursor.close();
+        }
+        if (alarm != null) {
+            put(alarm);
+        } else {
+            remove((int) rowId);
+        }
+    }
+
+    /**
+     * Called by AlarmProvider after the row was deleted.
+     */
+    synchronized void onRowDeleted(long rowId) {
+        mGeneration++;
+        remove((int) rowId);
+    }
+
+    /**
+     * Called by AlarmProvider after it disabled the rows matching
+     * Alarm.Columns.WHERE_EXPIRED for the given time.
+     */
+    synchronized void onExpiredDisabled(long now) {
+        mGeneration++;
+        int kept = 0;
+        for (int i = 0; i < mSize; i++) {
+            Entry entry = mHeap[i];
+            Alarm alarm = entry.alarm;
+            if (alarm.time != 0 && alarm.time < now) {
+                mById.remove(alarm.id);
+            } else {
+                entry.index = kept;
+                mHeap[kept++] = entry;
+            }
+        }
+        for (int i = kept; i < mSize; i++) {
+            mHeap[i] = null;
+        }
+        mSize = kept;
+        heapify();
+    }
+
+    /**
+     * Called by AlarmProvider after a write to rows it cannot name. The
+     * index is loaded again on next use.
+     */
+    synchronized void onTableChanged() {
+        mGeneration++;
+        mLoaded = false;
+        clear();
+    }
+
+    private void ensureLoaded() {
+        while (true) {
+            final int generation;
+            synchronized (this) {
+                if (mLoaded) {
+                    return;
+                }
+                generation = mGeneration;
+            }
+
+            // Query without holding the lock; the provider reports writes
+            // back into this object. Pages keep each cursor small however
+            // many alarms there are.
+            ArrayList<Alarm> alarms = new ArrayList<Alarm>();
+            int lastId = -1;
+            int count;
+            do {
+                count = 0;
+                Cursor cursor = Alarms.getEnabledAlarmsPage(
+                        mContext.getContentResolver(), lastId, LOAD_PAGE_SIZE);
+                if (cursor == null) {
+                    break;
+                }
+                while (cursor.moveToNext()) {
+                    Alarm alarm = Alarm.forScheduling(cursor);
+                    alarms.add(alarm);
+                    lastId = alarm.id;
+                    count++;
+                }
+                cursor.close();
+            } while (count == LOAD_PAGE_SIZE);
+
+            synchronized (this) {
+                if (mLoaded) {
+                    return;
+                }
+                if (generation != mGeneration) {
+                    if (Log.LOGV) Log.v("AlarmSchedule: write during load, reloading");
+                    continue;
+                }
+                clear();
+                for (Alarm alarm : alarms) {
+                    Entry entry = new Entry(alarm);
+                    mById.put(alarm.id, entry);
+                    append(entry);
+                }
+                heapify();
+                mLoaded = true;
+                return;
+            }
+        }
+    }
+
+    private void put(Alarm alarm) {
+        Entry old = mById.get(alarm.id);
+        Entry entry = new Entry(alarm);
+        mById.put(alarm.id, entry);
+        if (old == null) {
+            append(entry);
+            siftUp(entry.index);
+        } else {
+            entry.index = old.index;
+            mHeap[entry.index] = entry;
+            if (entry.time < old.time) {
+                siftUp(entry.index);
+            } else {
+                siftDown(entry.index);
+            }
+        }
+    }
+
+    private void clear() {
+        for (int i = 0; i < mSize; i++) {
+            mHeap[i] = null;
+        }
+        mSize = 0;
+        mById.clear();
+    }
+
+    private void append(Entry entry) {
+        if (mSize == mHeap.length) {
+            Entry[] heap = new Entry[mSize * 2];
+            System.arraycopy(mHeap, 0, heap, 0, mSize);
+            mHeap = heap;
+        }
+        entry.index = mSize;
+        mHeap[mSize++] = entry;
+    }
+
+    private void removeAt(int index) {
+        mSize--;
+        Entry last = mHeap[mSize];
+        mHeap[mSize] = null;
+        if (index == mSize) {
+            return;
+        }
+        Entry removed = mHeap[index];
+        mHeap[index] = last;
+        last.index = index;
+        if (last.time < removed.time) {
+            siftUp(index);
+        } else {
+            siftDown(index);
+        }
+    }
+
+    private void heapify() {
+        for (int i = mSize / 2 - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+    }
+
+    private void siftUp(int index) {
+        Entry entry = mHeap[index];
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (mHeap[parent].time <= entry.time) {
+                break;
+            }
+            mHeap[index] = mHeap[parent];
+            mHeap[index].index = index;
+            index = parent;
+        }
+        mHeap[index] = entry;
+        entry.index = index;
+    }
+
+    private void siftDown(int index) {
+        Entry entry = mHeap[index];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= mSize) {
+                break;
+            }
+            if (child + 1 < mSize && mHeap[child + 1].time < mHeap[child].time) {
+                child++;
+            }
+            if (entry.time <= mHeap[child].time) {
+                break;
+            }
+            mHeap[index] = mHeap[child];
+            mHeap[index].index = index;
+            index = child;
+        }
+        mHeap[index] = entry;
+        entry.index = index;
+    }
+
+    // A time of 0 marks a repeating alarm, which fires at its next matching
+    // day. Any other time is the one time a one-shot alarm fires.
+    private static long nextTime(Alarm alarm) {
+        if (alarm.time != 0) {
+            return alarm.time;
+        }
+        return Alarms.calculateAlarm(alarm.hour, alarm.minutes,
+                alarm.daysOfWeek);
+    }
+}
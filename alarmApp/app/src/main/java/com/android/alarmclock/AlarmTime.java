@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2009 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.alarmclock;
+
+import java.util.TimeZone;
+
+/**
+ * Computes when an alarm fires next, on plain UTC milliseconds and the
+ * offsets of the default time zone, without creating a Calendar.
+ *
+ * The steps and the handling of DST transitions follow what
+ * GregorianCalendar did for the old Calendar-based calculateAlarm: move to
+ * tomorrow if the time has passed today, set the time of day, then move to
+ * the next repeat day. A time of day that falls in a gap is resolved to
+ * standard time, as is one that falls in an overlap. Moving by whole days
+ * keeps the time of day unless that would change the date.
+ */
+final class AlarmTime {
+
+    private static final long MINUTE = 60 * 1000L;
+    private static final long HOUR = 60 * MINUTE;
+    private static final long DAY = 24 * HOUR;
+
+    // 1970-01-01 was a Thursday, which is day 3 counting from Monday.
+    private static final int EPOCH_DAY_OF_WEEK = 3;
+
+    // TimeZone.getDefault() returns a new copy on every call, so the zone is
+    // kept until AlarmInitReceiver reports a change.
+    private static volatile TimeZone sZone;
+
+    private AlarmTime() {
+    }
+
+    /**
+     * Returns when an alarm at the given time of day and repeat days fires
+     * next after now, in UTC milliseconds.
+     */
+    static long nextAlarm(int hour, int minute, Alarm.DaysOfWeek daysOfWeek,
+            long now) {
+        final TimeZone zone = getZone();
+        final int minuteOfDay = hour * 60 + minute;
+
+        // if alarm is behind current time, advance one day
+        long time = now;
+        long wall = now + zone.getOffset(now);
+        if (minuteOfDay <= floorMod(wall, DAY) / MINUTE) {
+            time = addDays(zone, now, 1);
+            wall = time + zone.getOffset(time);
+        }
+
+        // set the time of day on that date
+        time = wallToUtc(zone, floorDiv(wall, DAY) * DAY + minuteOfDay * MINUTE,
+                zone.getOffset(time));
+
+        wall = time + zone.getOffset(time);
+        int today = (int) floorMod(floorDiv(wall, DAY) + EPOCH_DAY_OF_WEEK, 7);
+        int addDays = daysOfWeek.getNextAlarm(today);
+        if (addDays > 0) {
+            time = addDays(zone, time, addDays);
+        }
+        return time;
+    }
+
+    /**
+     * Drops the cached time zone, so the next calculation uses the current
+     * default.
+     */
+    static void onTimeZoneChanged() {
+        sZone = null;
+    }
+
+    private static TimeZone getZone() {
+        TimeZone zone = sZone;
+        if (zone == null) {
+            zone = TimeZone.getDefault();
+            sZone = zone;
+        }
+        return zone;
+    }
+
+    // Moves by whole days, keeping the time of day. If the offset differs at
+    // the other end the time is corrected, unless that changes the date.
+    private static long addDays(TimeZone zone, long time, int days) {
+        final int offset = zone.getOffset(time);
+        final long wall = time + offset;
+        final long day = floorDiv(wall, DAY) + days;
+        long result = day * DAY + floorMod(wall, DAY) - offset;
+        final int delta = offset - zone.getOffset(result);
+        if (delta != 0) {
+            final long adjusted = result + delta;
+            if (floorDiv(adjusted + zone.getOffset(adjusted), DAY) == day) {
+                result = adjusted;
+            }
+        }
+        return result;
+    }
+
+    // Converts a wall clock time to UTC. nearbyOffset is the offset of an
+    // instant close to it and only narrows down where to look for a
+    // transition.
+    private static long wallToUtc(TimeZone zone, long wall, int nearbyOffset) {
+        final long guess = wall - nearbyOffset;
+        final int before = zone.getOffset(guess - 6 * HOUR);
+        final int after = zone.getOffset(guess + 6 * HOUR);
+        if (before == after) {
+            return wall - before;
+        }
+        if (zone.getOffset(wall - Math.max(before, after)) == after) {
+            // Past the transition whichever offset is used.
+            return wall - after;
+        }
+        if (zone.getOffset(wall - Math.min(before, after)) == before) {
+            // Before the transition whichever offset is used.
+            return wall - before;
+        }
+        // In the gap or the overlap; use the smaller offset, standard time.
+        return wall - Math.min(before, after);
+    }
+
+    private static long floorDiv(long x, long y) {
+        long q = x / y;
+        if ((x % y != 0) && ((x < 0) != (y < 0))) {
+            q--;
+        }
+        return q;
+    }
+
+    private static long floorMod(long x, long y) {
+        return x - floorDiv(x, y) * y;
+    }
+}
@@ -62,9 +62,10 @@ public class Alarms {
     // This string is used when passing an Alarm object through an intent.
     public static final String ALARM_INTENT_EXTRA = "intent.extra.alarm";
 
-    // This extra is the raw Alarm object data. It is used in the
+    // This extra is the Alarm object encoded by AlarmCodec, or marshalled
+    // from a Parcel by versions before it. It is used in the
     // AlarmManagerService to avoid a ClassNotFoundException when filling in
-    // the Intent extras.
+    // the Intent extras, and passed on as is to the alert and the klaxon.
     public static final String ALARM_RAW_DATA = "intent.extra.alarm_raw";
 
     // This string is used to identify the alarm id passed to SetAlarm from the
@@ -102,19 +103,59 @@ public class Alarms {
         setNextAlert(context);
     }
 
-    // Queries all alarms
-    public static Cursor getAlarmsCursor(ContentResolver contentResolver) {
-        return contentResolver.query(
-                Alarm.Columns.CONTENT_URI, Alarm.Columns.ALARM_QUERY_COLUMNS,
-                null, null, Alarm.Columns.DEFAULT_SORT_ORDER);
+    // Gets up to limit alarms in DEFAULT_SORT_ORDER, starting after the
+    // given alarm, or from the first alarm if after is null. Continue from
+    // the last alarm returned.
+    static Cursor getAlarmsPage(ContentResolver contentResolver, Alarm after,
+            int limit) {
+        Uri uri = Alarm.Columns.CONTENT_URI.buildUpon()
+                .appendQueryParameter(Alarm.Columns.QUERY_LIMIT,
+                        Integer.toString(limit))
+                .build();
+        String selection = null;
+        String[] selectionArgs = null;
+        if (after != null) {
+            // (hour, minutes, _id) > (after), spelled out for old SQLite.
+            selection = Alarm.Columns.HOUR + ">? OR (" + Alarm.Columns.HOUR
+                    + "=? AND (" + Alarm.Columns.MINUTES + ">? OR ("
+                    + Alarm.Columns.MINUTES + "=? AND " + Alarm.Columns._ID
+                    + ">?)))";
+            String hour = Integer.toString(after.hour);
+            String minutes = Integer.toString(after.minutes);
+            selectionArgs = new String[] {
+                hour, hour, minutes, minutes, Integer.toString(after.id)
+            };
+        }
+        return contentResolver.query(uri, Alarm.Columns.ALARM_QUERY_COLUMNS,
+                selection, selectionArgs, Alarm.Columns.DEFAULT_SORT_ORDER);
+    }
+
+    // Returns the number of alarms.
+    static int getAlarmCount(ContentResolver contentResolver) {
+        Cursor cursor = contentResolver.query(Alarm.Columns.CONTENT_URI,
+                new String[] { "count(*)" }, null, null, null);
+        int count = 0;
+        if (cursor != null) {
+            if (cursor.moveToFirst()) {
+                count = cursor.getInt(0);
+            }
+            cursor.close();
+        }
+        return count;
     }
 
-    // Private method to get a more limited set of alarms from the database.
-    private static Cursor getFilteredAlarmsCursor(
-            ContentResolver contentResolver) {
-        return contentResolver.query(Alarm.Columns.CONTENT_URI,
-                Alarm.Columns.ALARM_QUERY_COLUMNS, Alarm.Columns.WHERE_ENABLED,
-                null, null);
+    // Gets up to limit enabled alarms with an id above afterId, in id order,
+    // with the scheduling columns only. Start with an afterId of -1 and
+    // continue from the last id returned.
+    static Cursor getEnabledAlarmsPage(ContentResolver contentResolver,
+            int afterId, int limit) {
+        Uri uri = Alarm.Columns.CONTENT_URI.buildUpon()
+                .appendQueryParameter(Alarm.Columns.QUERY_LIMIT,
+                        Integer.toString(limit))
+                .build();
+        return contentResolver.query(uri, Alarm.Columns.SCHEDULE_QUERY_COLUMNS,
+                Alarm.Columns.WHERE_ENABLED + " AND " + Alarm.Columns._ID + ">?",
+                new String[] { Integer.toString(afterId) }, Alarm.Columns._ID);
     }
 
     // Return an Alarm object representing the alarm id in the database.
@@ -134,6 +175,35 @@ public class Alarms {
         return alarm;
     }
 
+    // Return the Alarm passed in the intent, either as ALARM_RAW_DATA or as
+    // an ALARM_INTENT_EXTRA parcelable. Returns null if there is none.
+    static Alarm getAlarm(Intent intent) {
+        final byte[] data = intent.getByteArrayExtra(ALARM_RAW_DATA);
+        if (data != null) {
+            return readRawData(data);
+        }
+        return intent.getParcelableExtra(ALARM_INTENT_EXTRA);
+    }
+
+    // Reads ALARM_RAW_DATA. Alarms set by an older version of the app, and
+    // still pending in AlarmManager, carry Parcel data instead.
+    static Alarm readRawData(byte[] data) {
+        if (AlarmCodec.isEncoded(data)) {
+            return AlarmCodec.decode(data);
+        }
+        Parcel in = Parcel.obtain();
+        try {
+            in.unmarshall(data, 0, data.length);
+            in.setDataPosition(0);
+            return Alarm.CREATOR.createFromParcel(in);
+        } catch (RuntimeException e) {
+            Log.e("Unable to read alarm data", e);
+            return null;
+        } finally {
+            in.recycle();
+        }
+    }
+
 
     public static long setAlarm(
             Context context, int id, boolean enabled, int hour, int minutes,
@@ -146,7 +216,7 @@ public class Alarms {
         // used later to disable expired alarms.
         long time = 0;
         if (!daysOfWeek.isRepeatSet()) {
-            time = calculateAlarm(hour, minutes, daysOfWeek).getTimeInMillis();
+            time = calculateAlarm(hour, minutes, daysOfWeek);
         }
 
         if (Log.LOGV) Log.v(
@@ -164,8 +234,7 @@ public class Alarms {
         resolver.update(ContentUris.withAppendedId(Alarm.Columns.CONTENT_URI, id),
                         values, null, null);
 
-        long timeInMillis =
-                calculateAlarm(hour, minutes, daysOfWeek).getTimeInMillis();
+        long timeInMillis = calculateAlarm(hour, minutes, daysOfWeek);
 
         if (enabled) {
             // If this alarm fires before the next snooze, clear the snooze to
@@ -208,7 +277,7 @@ public class Alarms {
             long time = 0;
             if (!alarm.daysOfWeek.isRepeatSet()) {
                 time = calculateAlarm(alarm.hour, alarm.minutes,
-                        alarm.daysOfWeek).getTimeInMillis();
+                        alarm.daysOfWeek);
             }
             values.put(Alarm.Columns.ALARM_TIME, time);
         }
@@ -218,55 +287,41 @@ public class Alarms {
     }
 
     public static Alarm calculateNextAlert(final Context context) {
-        Alarm alarm = null;
-        long minTime = Long.MAX_VALUE;
-        long now = System.currentTimeMillis();
-        Cursor cursor = getFilteredAlarmsCursor(context.getContentResolver());
-        if (cursor != null) {
-            if (cursor.moveToFirst()) {
-                do {
-                    Alarm a = new Alarm(cursor);
-                    // A time of 0 indicates this is a repeating alarm, so
-                    // calculate the time to get the next alert.
-                    if (a.time == 0) {
-                        a.time = calculateAlarm(a.hour, a.minutes, a.daysOfWeek)
-                                .getTimeInMillis();
-                    } else if (a.time < now) {
-                        // Expired alarm, disable it and move along.
-                        enableAlarmInternal(context, a, false);
-                        continue;
-                    }
-                    if (a.time < minTime) {
-                        minTime = a.time;
-                        alarm = a;
-                    }
-                } while (cursor.moveToNext());
+        final AlarmSchedule schedule = AlarmSchedule.getInstance(context);
+        final long now = System.currentTimeMillis();
+        Alarm next = schedule.peekNext(now);
+        if (next != null && next.time < now) {
+            // Expired alarms sort first. Disable all of them in one write and
+            // move along.
+            disableExpiredAlarms(context, now);
+            next = schedule.peekNext(now);
+        }
+        while (next != null) {
+            // The schedule only keeps the columns it sorts by; read the rest.
+            Alarm alarm = getAlarm(context.getContentResolver(), next.id);
+            if (alarm != null) {
+                alarm.time = next.time;
+                return alarm;
             }
-            cursor.close();
+            schedule.remove(next.id);
+            next = schedule.peekNext(now);
         }
-        return alarm;
+        return null;
     }
 
     // Disables non-repeating alarms that have passed.
     public static void disableExpiredAlarms(final Context context) {
-        Cursor cur = getFilteredAlarmsCursor(context.getContentResolver());
-        long now = System.currentTimeMillis();
-
-        if (cur.moveToFirst()) {
-            do {
-                Alarm alarm = new Alarm(cur);
-                // A time of 0 means this alarm repeats. If the time is
-                // non-zero, check if the time is before now.
-                if (alarm.time != 0 && alarm.time < now) {
-                    if (Log.LOGV) {
-                        Log.v("** DISABLE " + alarm.id + " now " + now +" set "
-                                + alarm.time);
-                    }
-                    enableAlarmInternal(context, alarm, false);
-                }
-            } while (cur.moveToNext());
-        }
-        cur.close();
+        disableExpiredAlarms(context, System.currentTimeMillis());
+    }
+
+    private static void disableExpiredAlarms(final Context context,
+            final long now) {
+        ContentValues values = new ContentValues(1);
+        values.put(Alarm.Columns.ENABLED, 0);
+        int count = context.getContentResolver().update(
+                Alarm.Columns.CONTENT_URI, values, Alarm.Columns.WHERE_EXPIRED,
+                new String[] { Long.toString(now) });
+        if (Log.LOGV) Log.v("** DISABLE " + count + " expired alarms, now " + now);
     }
 
     /**
@@ -300,10 +355,7 @@ public class Alarms {
 
         Intent intent = new Intent(ALARM_ALERT_ACTION);
 
-        Parcel out = Parcel.obtain();
-        alarm.writeToParcel(out, 0);
-        out.setDataPosition(0);
-        intent.putExtra(ALARM_RAW_DATA, out.marshall());
+        intent.putExtra(ALARM_RAW_DATA, AlarmCodec.encode(alarm));
 
         PendingIntent sender = PendingIntent.getBroadcast(
                 context, 0, intent, PendingIntent.FLAG_CANCEL_CURRENT);
@@ -312,9 +364,7 @@ public class Alarms {
 
         setStatusBarIcon(context, true);
 
-        Calendar c = Calendar.getInstance();
-        c.setTime(new java.util.Date(atTimeInMillis));
-        String timeString = formatDayAndTime(context, c);
+        String timeString = formatDayAndTime(context, atTimeInMillis);
         saveNextAlarm(context, timeString);
     }
 
@@ -421,34 +471,16 @@ public class Alarms {
      * Given an alarm in hours and minutes, return a time suitable for
      * setting in AlarmManager.
      */
-    static Calendar calculateAlarm(int hour, int minute, Alarm.DaysOfWeek daysOfWeek) {
-
-        // start with now
-        Calendar c = Calendar.getInstance();
-        c.setTimeInMillis(System.currentTimeMillis());
-
-        int nowHour = c.get(Calendar.HOUR_OF_DAY);
-        int nowMinute = c.get(Calendar.MINUTE);
-
-        // if alarm is behind current time, advance one day
-        if (hour < nowHour  ||
-            hour == nowHour && minute <= nowMinute) {
-            c.add(Calendar.DAY_OF_YEAR, 1);
-        }
-        c.set(Calendar.HOUR_OF_DAY, hour);
-        c.set(Calendar.MINUTE, minute);
-        c.set(Calendar.SECOND, 0);
-        c.set(Calendar.MILLISECOND, 0);
-
-        int addDays = daysOfWeek.getNextAlarm(c);
-        if (addDays > 0) c.add(Calendar.DAY_OF_WEEK, addDays);
-        return c;
+    static long calculateAlarm(int hour, int minute, Alarm.DaysOfWeek daysOfWeek) {
+        return AlarmTime.nextAlarm(hour, minute, daysOfWeek,
+                System.currentTimeMillis());
     }
 
     static String formatTime(final Context context, int hour, int minute,
                              Alarm.DaysOfWeek daysOfWeek) {
-        Calendar c = calculateAlarm(hour, minute, daysOfWeek);
-        return formatTime(context, c);
+        long time = calculateAlarm(hour, minute, daysOfWeek);
+        String format = get24HourMode(context) ? M24 : M12;
+        return (String)DateFormat.format(format, time);
     }
 
     /* used by AlarmAlert */
@@ -460,9 +492,9 @@ public class Alarms {
     /**
      * Shows day and time -- used for lock screen
      */
-    private static String formatDayAndTime(final Context context, Calendar c) {
+    private static String formatDayAndTime(final Context context, long time) {
         String format = get24HourMode(context) ? DM24 : DM12;
-        return (c == null) ? "" : (String)DateFormat.format(format, c);
+        return (String)DateFormat.format(format, time);
     }
 
     /**
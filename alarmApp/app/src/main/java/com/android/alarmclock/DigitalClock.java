@@ -178,6 +178,13 @@ public class DigitalClock extends LinearLayout {
         updateTime();
     }
 
+    // Shows the given time of day, for a clock that is not live.
+    void updateTime(int hour, int minute) {
+        mCalendar.set(Calendar.HOUR_OF_DAY, hour);
+        mCalendar.set(Calendar.MINUTE, minute);
+        updateTime();
+    }
+
     private void updateTime() {
         if (mLive) {
             mCalendar.setTimeInMillis(System.currentTimeMillis());
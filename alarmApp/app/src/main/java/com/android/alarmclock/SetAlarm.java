@@ -102,7 +102,7 @@ public class SetAlarm extends PreferenceActivity
         mRepeatPref.setDaysOfWeek(alarm.daysOfWeek);
         mVibratePref.setChecked(alarm.vibrate);
         // Give the alert uri to the preference.
-        mAlarmPref.setAlert(alarm.alert);
+        mAlarmPref.setAlert(alarm.getAlert());
         updateTime();
 
         // We have to do this to get the save/cancel buttons to highlight on
@@ -231,8 +231,7 @@ public class SetAlarm extends PreferenceActivity
     static void popAlarmSetToast(Context context, int hour, int minute,
                                  Alarm.DaysOfWeek daysOfWeek) {
         popAlarmSetToast(context,
-                Alarms.calculateAlarm(hour, minute, daysOfWeek)
-                .getTimeInMillis());
+                Alarms.calculateAlarm(hour, minute, daysOfWeek));
     }
 
     private static void popAlarmSetToast(Context context, long timeInMillis) {
@@ -0,0 +1,399 @@
+/*
+ * Copyright 2019 The TensorFlow Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.tensorflow.lite.examples.detection;
+
+import android.app.NotificationManager;
+import android.content.Context;
+import android.content.Intent;
+import android.graphics.Bitmap;
+import android.graphics.Bitmap.Config;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.media.ImageReader.OnImageAvailableListener;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.util.Log;
+import android.util.Size;
+import android.view.View;
+import android.widget.CompoundButton;
+import android.widget.Toast;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+
+import org.tensorflow.lite.examples.detection.env.ImageUtils;
+import org.tensorflow.lite.examples.detection.lib.R;
+import org.tensorflow.lite.examples.detection.tflite.Classifier;
+import org.tensorflow.lite.examples.detection.tflite.DetectionBatch;
+import org.tensorflow.lite.examples.detection.tflite.ModelDescriptor;
+import org.tensorflow.lite.examples.detection.tflite.ModelRegistry;
+import org.tensorflow.lite.examples.detection.tflite.TFLiteObjectDetectionAPIModel;
+import org.tensorflow.lite.examples.detection.tracking.MultiBoxTracker;
+
+import com.google.android.gms.ads.AdRequest;
+import com.google.android.gms.ads.InterstitialAd;
+import com.google.android.gms.ads.MobileAds;
+import com.google.android.gms.ads.initialization.InitializationStatus;
+import com.google.android.gms.ads.initialization.OnInitializationCompleteListener;
+
+/**
+ * An activity that uses a TensorFlowMultiBoxDetector and ObjectTracker to detect and then track
+ * objects.
+ */
+public class DetectorActivity extends CameraActivity
+    implements OnImageAvailableListener, ModelRegistry.Listener {
+  private static final String TAG = "DetectorActivity";
+
+  // Configuration values for the prepackaged SSD model, used if it has no descriptor.
+  private static final int TF_OD_API_INPUT_SIZE = 300;
+  private static final String TF_OD_API_MODEL_FILE = "detect.tflite";
+  private static final String TF_OD_API_LABELS_FILE = "file:///android_asset/labelmap.txt";
+
+  // Minimum detection confidence to track a detection.
+  private static final float MINIMUM_CONFIDENCE_TF_OD_API = 0.65f;
+  // Label whose detection dismisses the alarm.
+  private static final String TARGET_CLASS = "toothbrush";
+  private static final boolean MAINTAIN_ASPECT = false;
+  private static final Size DESIRED_PREVIEW_SIZE = new Size(640, 480);
+  private static final boolean SAVE_PREVIEW_BITMAP = false;
+  private static final float TEXT_SIZE_DIP = 10;
+  private Integer sensorOrientation;
+
+  private ModelRegistry modelRegistry;
+  // The model in use. Only replaced between frames, on the image thread.
+  private volatile ModelSession session;
+  // A model loaded in the background, waiting to replace the current one at the next frame.
+  private final AtomicReference<ModelSession> pendingSession = new AtomicReference<>();
+  // Loads models announced by the registry, one at a time.
+  private final ExecutorService modelLoader =
+      Executors.newSingleThreadExecutor(r -> new Thread(r, "model-loader"));
+  // Interpreter settings chosen by the user, applied to every model loaded. 0 threads means the
+  // detector default.
+  private volatile int numThreads;
+  private volatile boolean useNNAPI;
+
+  private long lastProcessingTimeMs;
+  private Bitmap rgbFrameBitmap = null;
+
+  private long timestamp = 0;
+
+  private MultiBoxTracker tracker;
+
+
+  private InterstitialAd mInterstitialAd;
+
+  // set the preview and tracking
+  @Override
+  public void onPreviewSizeChosen(final Size size, final int rotation) {
+    // Set ads
+    MobileAds.initialize(this, new OnInitializationCompleteListener() {
+      @Override
+      public void onInitializationComplete(InitializationStatus initializationStatus) {}
+    });
+    mInterstitialAd = new InterstitialAd(this);
+    mInterstitialAd.setAdUnitId("ca-app-pub-3940256099942544/1033173712");
+    // For the build and testing, test ad should be set.
+    // For the production
+    // ca-app-pub-8933690005967310/9685842587
+    mInterstitialAd.loadAd(new AdRequest.Builder().build());
+
+
+
+    tracker = new MultiBoxTracker(this);
+
+    previewWidth = size.getWidth();
+    previewHeight = size.getHeight();
+
+    sensorOrientation = rotation - getScreenOrientation();
+
+    rgbFrameBitmap = Bitmap.createBitmap(previewWidth, previewHeight, Config.ARGB_8888);
+
+    // ready the tensorflow model
+    final ModelSession previous = session;
+    try {
+      ModelDescriptor model = modelRegistry.getActiveModel();
+      if (model == null) {
+        model = getBundledModel();
+      }
+      session = createSession(model);
+    } catch (final IOException e) {
+      e.printStackTrace();
+
+      Toast toast =
+          Toast.makeText(
+              getApplicationContext(), "Classifier could not be initialized", Toast.LENGTH_SHORT);
+      toast.show();
+      finish();
+    }
+    // The camera was restarted, so no frame is using the previous model any more.
+    if (previous != null) {
+      previous.detector.close();
+    }
+
+    tracker.setFrameConfiguration(previewWidth, previewHeight, sensorOrientation);
+  }
+
+  // process detecting
+  @Override
+  protected void processImage() {
+    ++timestamp;
+    final long currTimestamp = timestamp;
+
+    // The camera thread claimed the frame slot for this frame, so no inference is running.
+    final long frameStartTime = SystemClock.uptimeMillis();
+
+    // No frame is in flight, so this is the moment to switch models.
+    final ModelSession next = pendingSession.getAndSet(null);
+    if (next != null) {
+      final ModelSession previous = session;
+      session = next;
+      previous.detector.close();
+      Log.i(TAG, "Switched to model " + next.model);
+    }
+    final ModelSession s = session;
+
+    rgbFrameBitmap.setPixels(getRgbBytes(), 0, previewWidth, 0, 0, previewWidth, previewHeight);
+
+    readyForNextImage();
+
+    final Canvas canvas = new Canvas(s.croppedBitmap);
+    canvas.drawBitmap(rgbFrameBitmap, s.frameToCropTransform, null);
+    // For examining the actual TF input.
+    if (SAVE_PREVIEW_BITMAP) {
+      ImageUtils.saveBitmap(s.croppedBitmap);
+    }
+
+    // Publish the crop; the inference thread sees everything written to it above.
+    frameSlot.commitFill();
+    runInBackground(
+        new Runnable() {
+          @Override
+          public void run() {
+            if (!frameSlot.tryBeginConsume()) {
+              return;
+            }
+            boolean detected = false;
+            try {
+              final long startTime = SystemClock.uptimeMillis();
+              final DetectionBatch results = s.detector.detect(s.croppedBitmap);
+              lastProcessingTimeMs = SystemClock.uptimeMillis() - startTime;
+
+              detected =
+                  results.getBestScore(s.model.getTargetClass()) >= s.model.getMinimumConfidence();
+            } finally {
+              frameSlot.endConsume();
+              // Report failed frames too, or a replay waiting on this one never resumes.
+              onFrameProcessed(detected, SystemClock.uptimeMillis() - frameStartTime);
+            }
+
+            // Toothbrush is detected. A replay only counts detections. This thread has no
+            // Looper, so the toast and finish() go to the UI thread.
+            if (detected && !isReplaying()) {
+              runOnUiThread(
+                  new Runnable() {
+                    @Override
+                    public void run() {
+                      dismissAlarm();
+
+                      Toast.makeText(
+                              getBaseContext(),
+                              "Toothbrush is detected. Alarm dismissed",
+                              Toast.LENGTH_SHORT)
+                          .show();
+                      finish();
+                    }
+                  });
+            }
+          }
+        });
+  }
+
+  @Override
+  protected void onCreate(final Bundle savedInstanceState) {
+    // Load the model while the views are inflated and the camera opens.
+    modelRegistry = ModelRegistry.getInstance(this);
+    modelRegistry.prewarm();
+    super.onCreate(savedInstanceState);
+    modelRegistry.addListener(this);
+  }
+
+  /**
+   * Looks up the camera and loads the model in the background, for callers that know detection
+   * is about to start, e.g. when an alarm goes off.
+   */
+  public static void prewarm(final Context context) {
+    CameraSelector.prewarm(context);
+    ModelRegistry.getInstance(context).prewarm();
+  }
+
+  @Override
+  public synchronized void onDestroy() {
+    modelRegistry.removeListener(this);
+    modelLoader.shutdownNow();
+    final ModelSession next = pendingSession.getAndSet(null);
+    if (next != null) {
+      next.detector.close();
+    }
+    if (session != null) {
+      session.detector.close();
+      session = null;
+    }
+    super.onDestroy();
+  }
+
+  // Load the new model off the camera and inference threads; processImage() picks it up.
+  @Override
+  public void onActiveModelChanged(final ModelDescriptor model) {
+    final ModelSession current = session;
+    if (current == null || current.model.isSameModel(model)) {
+      return;
+    }
+    modelLoader.execute(
+        new Runnable() {
+          @Override
+          public void run() {
+            try {
+              final ModelSession replaced = pendingSession.getAndSet(createSession(model));
+              if (replaced != null) {
+                replaced.detector.close();
+              }
+            } catch (final IOException e) {
+              Log.e(TAG, "Could not load model " + model, e);
+            }
+          }
+        });
+  }
+
+  private static ModelDescriptor getBundledModel() {
+    return new ModelDescriptor(
+        "detect",
+        null,
+        0,
+        TF_OD_API_MODEL_FILE,
+        TF_OD_API_LABELS_FILE.substring(TF_OD_API_LABELS_FILE.lastIndexOf('/') + 1),
+        TF_OD_API_INPUT_SIZE,
+        TFLiteObjectDetectionAPIModel.DEFAULT_IMAGE_MEAN,
+        TFLiteObjectDetectionAPIModel.DEFAULT_IMAGE_STD,
+        TARGET_CLASS,
+        MINIMUM_CONFIDENCE_TF_OD_API);
+  }
+
+  private ModelSession createSession(final ModelDescriptor model) throws IOException {
+    final int cropSize = model.getInputSize();
+    final Matrix frameToCropTransform =
+        ImageUtils.getTransformationMatrix(
+            previewWidth, previewHeight, cropSize, cropSize, sensorOrientation, MAINTAIN_ASPECT);
+    final Matrix cropToFrameTransform = new Matrix();
+    frameToCropTransform.invert(cropToFrameTransform);
+    final Classifier detector = modelRegistry.createClassifier(model);
+    if (numThreads > 0) {
+      detector.setNumThreads(numThreads);
+    }
+    if (useNNAPI) {
+      detector.setUseNNAPI(true);
+    }
+    return new ModelSession(
+        model,
+        detector,
+        Bitmap.createBitmap(cropSize, cropSize, Config.ARGB_8888),
+        frameToCropTransform,
+        cropToFrameTransform);
+  }
+
+  @Override
+  protected int getLayoutId() {
+    return R.layout.camera_connection_fragment_tracking;
+  }
+
+  @Override
+  protected Size getDesiredPreviewFrameSize() {
+    return DESIRED_PREVIEW_SIZE;
+  }
+
+  @Override
+  protected int getModelInputSize() {
+    try {
+      final ModelDescriptor model = modelRegistry.getActiveModel();
+      if (model != null) {
+        return model.getInputSize();
+      }
+    } catch (final IOException e) {
+      Log.e(TAG, "Could not read model descriptors", e);
+    }
+    return TF_OD_API_INPUT_SIZE;
+  }
+
+  // NO TOOTHBRUSH AD is clicked
+  @Override
+  public void onClick(View v) {
+    if (mInterstitialAd.isLoaded()) {
+      mInterstitialAd.show();
+      dismissAlarm();
+      finish();
+    }
+  }
+
+  @Override
+  public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {  }
+
+  /** A detector and the buffers sized for its input, replaced as a whole when the model changes. */
+  private static class ModelSession {
+    final ModelDescriptor model;
+    final Classifier detector;
+    final Bitmap croppedBitmap;
+    final Matrix frameToCropTransform;
+    final Matrix cropToFrameTransform;
+
+    ModelSession(
+        final ModelDescriptor model,
+        final Classifier detector,
+        final Bitmap croppedBitmap,
+        final Matrix frameToCropTransform,
+        final Matrix cropToFrameTransform) {
+      this.model = model;
+      this.detector = detector;
+      this.croppedBitmap = croppedBitmap;
+      this.frameToCropTransform = frameToCropTransform;
+      this.cropToFrameTransform = cropToFrameTransform;
+    }
+  }
+
+  @Override
+  protected void setUseNNAPI(final boolean isChecked) {
+    useNNAPI = isChecked;
+    runConfigInBackground("nnapi", () -> session.detector.setUseNNAPI(isChecked));
+  }
+
+  @Override
+  protected void setNumThreads(final int numThreads) {
+    this.numThreads = numThreads;
+    runConfigInBackground("threads", () -> session.detector.setNumThreads(numThreads));
+  }
+
+  private void dismissAlarm() {
+    Intent intent = getIntent();
+    NotificationManager nm = (NotificationManager) getSystemService(NOTIFICATION_SERVICE);
+    nm.cancel(intent.getExtras().getInt("alarm_id"));
+    Intent stopAlarm = new Intent("com.android.alarmclock.ALARM_ALERT");
+    stopAlarm.setPackage("com.android.alarmclock");
+    stopService(stopAlarm);
+  }
+
+
+}
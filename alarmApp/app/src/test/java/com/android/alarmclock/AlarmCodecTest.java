@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2009 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.alarmclock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+/**
+ * Round trips alarms through AlarmCodec.
+ */
+public class AlarmCodecTest {
+
+    private static final String CUSTOM_ALERT =
+            "content://media/internal/audio/media/42";
+
+    @Test
+    public void roundTripsDefaultAlert() {
+        roundTrip(alarm(1, "Wake up", "", false), "Wake up", "");
+    }
+
+    @Test
+    public void roundTripsNullAlertAsDefault() {
+        roundTrip(alarm(2, "Wake up", null, false), "Wake up", "");
+    }
+
+    @Test
+    public void roundTripsSilentAlert() {
+        Alarm decoded = roundTrip(
+                alarm(3, "Quiet", Alarms.ALARM_ALERT_SILENT, true), "Quiet",
+                Alarms.ALARM_ALERT_SILENT);
+        assertTrue(decoded.silent);
+    }
+
+    @Test
+    public void roundTripsCustomAlert() {
+        roundTrip(alarm(4, "Gym", CUSTOM_ALERT, false), "Gym", CUSTOM_ALERT);
+    }
+
+    @Test
+    public void tableAlertsTakeNoBytes() {
+        int table = AlarmCodec.encode(alarm(5, "", "", false)).length;
+        int custom = AlarmCodec.encode(alarm(5, "", CUSTOM_ALERT, false)).length;
+        assertEquals(table + CUSTOM_ALERT.length(), custom);
+    }
+
+    @Test
+    public void roundTripsNullLabelAsEmpty() {
+        roundTrip(alarm(6, null, "", false), "", "");
+    }
+
+    @Test
+    public void roundTripsMultiByteLabel() {
+        String label = "über 早起き 😀";
+        roundTrip(alarm(7, label, CUSTOM_ALERT, false), label, CUSTOM_ALERT);
+    }
+
+    @Test
+    public void roundTripsLongLabel() {
+        // Needs more than one varint byte for its length.
+        char[] chars = new char[300];
+        Arrays.fill(chars, 'x');
+        String label = new String(chars);
+        roundTrip(alarm(8, label, "", false), label, "");
+    }
+
+    @Test
+    public void roundTripsExtremeTimesAndIds() {
+        long[] times = {
+            0, -1, Long.MIN_VALUE, Long.MAX_VALUE, 1636266600000L, 1L << 40
+        };
+        int[] ids = { 0, 1, -1, Integer.MAX_VALUE, Integer.MIN_VALUE };
+        for (long time : times) {
+            for (int id : ids) {
+                Alarm alarm = new Alarm(id, true, 23, 59, 0x7f, time, true,
+                        false, "L", "");
+                Alarm decoded = AlarmCodec.decode(AlarmCodec.encode(alarm));
+                assertNotNull(decoded);
+                assertEquals(id, decoded.id);
+                assertEquals(time, decoded.time);
+            }
+        }
+    }
+
+    @Test
+    public void roundTripsEveryDaysMask() {
+        for (int days = 0; days < 128; days++) {
+            Alarm alarm = new Alarm(9, days % 2 == 0, days % 24, days % 60,
+                    days, 0, days % 3 == 0, false, "", "");
+            Alarm decoded = AlarmCodec.decode(AlarmCodec.encode(alarm));
+            assertEquals(days, decoded.daysOfWeek.getCoded());
+            assertEquals(alarm.enabled, decoded.enabled);
+            assertEquals(alarm.vibrate, decoded.vibrate);
+            assertEquals(alarm.hour, decoded.hour);
+            assertEquals(alarm.minutes, decoded.minutes);
+        }
+    }
+
+    @Test
+    public void rejectsTruncatedData() {
+        byte[] data = AlarmCodec.encode(
+                alarm(10, "早起き", CUSTOM_ALERT, false));
+        for (int length = 0; length < data.length; length++) {
+            assertNull("length " + length,
+                    AlarmCodec.decode(Arrays.copyOf(data, length)));
+        }
+    }
+
+    @Test
+    public void rejectsOtherVersion() {
+        byte[] data = AlarmCodec.encode(alarm(11, "Wake up", "", false));
+        data[AlarmCodec.MAGIC.length] = (byte) (AlarmCodec.VERSION + 1);
+        assertTrue(AlarmCodec.isEncoded(data));
+        assertNull(AlarmCodec.decode(data));
+    }
+
+    @Test
+    public void rejectsParcelData() {
+        // Parcel data starts with the alarm id as a native-order int.
+        byte[] data = AlarmCodec.encode(alarm(12, "Wake up", "", false));
+        System.arraycopy(new byte[] { 1, 0, 0, 0 }, 0, data, 0, 4);
+        assertFalse(AlarmCodec.isEncoded(data));
+        assertNull(AlarmCodec.decode(data));
+        assertFalse(AlarmCodec.isEncoded(null));
+        assertNull(AlarmCodec.decode(null));
+    }
+
+    private static Alarm alarm(int id, String label, String alert,
+            boolean silent) {
+        return new Alarm(id, true, 7, 30, 0x1f, 1636266600000L, true, silent,
+                label, alert);
+    }
+
+    private static Alarm roundTrip(Alarm alarm, String label, String alert) {
+        Alarm decoded = AlarmCodec.decode(AlarmCodec.encode(alarm));
+        assertNotNull(decoded);
+        assertEquals(alarm.id, decoded.id);
+        assertEquals(alarm.enabled, decoded.enabled);
+        assertEquals(alarm.hour, decoded.hour);
+        assertEquals(alarm.minutes, decoded.minutes);
+        assertEquals(alarm.daysOfWeek.getCoded(),
+                decoded.daysOfWeek.getCoded());
+        assertEquals(alarm.time, decoded.time);
+        assertEquals(alarm.vibrate, decoded.vibrate);
+        assertEquals(alarm.silent, decoded.silent);
+        assertEquals(label, decoded.label);
+        assertEquals(alert, decoded.getAlertString());
+        return decoded;
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) 2009 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.alarmclock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Random;
+import java.util.TimeZone;
+
+/**
+ * Checks AlarmTime against the Calendar-based calculation it replaced.
+ */
+public class AlarmTimeTest {
+
+    private static final long MINUTE = 60 * 1000L;
+    private static final long DAY = 24 * 60 * MINUTE;
+
+    // 2000-01-01 and 2037-01-01 UTC.
+    private static final long START = 946684800000L;
+    private static final long END = 2114380800000L;
+
+    // With and without DST, DST at midnight, half-hour DST, DST that goes
+    // back in summer, and a zone that skipped a whole day.
+    private static final String[] ZONES = {
+        "America/New_York", "Europe/London", "Europe/Dublin",
+        "America/Sao_Paulo", "America/Santiago", "Australia/Lord_Howe",
+        "Pacific/Chatham", "Pacific/Apia", "Asia/Tehran", "Asia/Kolkata",
+        "UTC"
+    };
+
+    private TimeZone mDefaultZone;
+    private final Random mRandom = new Random(43);
+
+    @Before
+    public void setUp() {
+        mDefaultZone = TimeZone.getDefault();
+    }
+
+    @After
+    public void tearDown() {
+        setZone(mDefaultZone);
+    }
+
+    @Test
+    public void matchesCalendarAtRandomTimes() {
+        for (String id : ZONES) {
+            setZone(TimeZone.getTimeZone(id));
+            for (int i = 0; i < 128 * 40; i++) {
+                long now = START + (long) (mRandom.nextDouble() * (END - START));
+                check(id, mRandom.nextInt(24), mRandom.nextInt(60), i % 128, now);
+            }
+        }
+    }
+
+    @Test
+    public void matchesCalendarAroundTransitions() {
+        for (String id : ZONES) {
+            TimeZone zone = TimeZone.getTimeZone(id);
+            setZone(zone);
+            ArrayList<Long> transitions = findTransitions(zone);
+            for (long transition : transitions) {
+                // Alarms set for around the wall clock time of the
+                // transition, from up to a week either side of it.
+                long wall = transition + zone.getOffset(transition);
+                int minuteOfDay = (int) (((wall % DAY) + DAY) % DAY / MINUTE);
+                for (int days = 0; days < 128; days++) {
+                    long now = transition
+                            + (long) ((mRandom.nextDouble() * 16 - 8) * DAY);
+                    int minute = minuteOfDay + mRandom.nextInt(181) - 90;
+                    minute = (minute + 24 * 60) % (24 * 60);
+                    check(id, minute / 60, minute % 60, days, now);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void findsTransitionsInEveryDstZone() {
+        for (String id : ZONES) {
+            TimeZone zone = TimeZone.getTimeZone(id);
+            if (zone.useDaylightTime()) {
+                assertTrue(id, !findTransitions(zone).isEmpty());
+            }
+        }
+    }
+
+    @Test
+    public void resolvesGapToStandardTime() {
+        setZone(TimeZone.getTimeZone("America/New_York"));
+        // Saturday 2021-03-13 12:00 EST; 02:30 does not exist on Sunday.
+        long now = 1615654800000L;
+        long expected = 1615707000000L; // 2021-03-14 07:30 UTC
+        assertEquals(expected, AlarmTime.nextAlarm(2, 30,
+                new Alarm.DaysOfWeek(0), now));
+        assertEquals(expected, calendarNextAlarm(2, 30,
+                new Alarm.DaysOfWeek(0), now));
+    }
+
+    @Test
+    public void resolvesOverlapToStandardTime() {
+        setZone(TimeZone.getTimeZone("America/New_York"));
+        // Saturday 2021-11-06 12:00 EDT; 01:30 happens twice on Sunday.
+        long now = 1636214400000L;
+        long expected = 1636266600000L; // 2021-11-07 06:30 UTC
+        assertEquals(expected, AlarmTime.nextAlarm(1, 30,
+                new Alarm.DaysOfWeek(0), now));
+        assertEquals(expected, calendarNextAlarm(1, 30,
+                new Alarm.DaysOfWeek(0), now));
+    }
+
+    private static void check(String zone, int hour, int minute, int days,
+            long now) {
+        Alarm.DaysOfWeek daysOfWeek = new Alarm.DaysOfWeek(days);
+        long expected = calendarNextAlarm(hour, minute, daysOfWeek, now);
+        long actual = AlarmTime.nextAlarm(hour, minute, daysOfWeek, now);
+        if (expected != actual) {
+            assertEquals(zone + " now " + new Date(now) + " alarm " + hour
+                    + ":" + minute + " days " + days,
+                    new Date(expected), new Date(actual));
+        }
+    }
+
+    // The calculation Alarms.calculateAlarm made before AlarmTime.
+    private static long calendarNextAlarm(int hour, int minute,
+            Alarm.DaysOfWeek daysOfWeek, long now) {
+        Calendar c = Calendar.getInstance();
+        c.setTimeInMillis(now);
+
+        int nowHour = c.get(Calendar.HOUR_OF_DAY);
+        int nowMinute = c.get(Calendar.MINUTE);
+
+        if (hour < nowHour
+                || hour == nowHour && minute <= nowMinute) {
+            c.add(Calendar.DAY_OF_YEAR, 1);
+        }
+        c.set(Calendar.HOUR_OF_DAY, hour);
+        c.set(Calendar.MINUTE, minute);
+        c.set(Calendar.SECOND, 0);
+        c.set(Calendar.MILLISECOND, 0);
+
+        int addDays = daysOfWeek.getNextAlarm(c);
+        if (addDays > 0) c.add(Calendar.DAY_OF_WEEK, addDays);
+        return c.getTimeInMillis();
+    }
+
+    // Offset changes between 2010 and 2030, to the quarter hour.
+    private static ArrayList<Long> findTransitions(TimeZone zone) {
+        ArrayList<Long> transitions = new ArrayList<Long>();
+        final long step = 15 * MINUTE;
+        long t = 1262304000000L;
+        int offset = zone.getOffset(t);
+        for (; t < 1893456000000L; t += step) {
+            int next = zone.getOffset(t + step);
+            if (next != offset) {
+                transitions.add(t + step);
+                offset = next;
+            }
+        }
+        return transitions;
+    }
+
+    private static void setZone(TimeZone zone) {
+        TimeZone.setDefault(zone);
+        AlarmTime.onTimeZoneChanged();
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2019 The TensorFlow Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.tensorflow.lite.examples.detection;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands one frame at a time from the camera thread to the inference thread.
+ *
+ * <p>The slot goes FREE, FILLING, READY, CONSUMING and back to FREE. Only the producer moves it
+ * out of FREE and into READY, only the consumer out of READY and into FREE. Every transition is an
+ * atomic write, so whatever the producer wrote into the frame buffers before {@link #commitFill()}
+ * is visible to the consumer after {@link #tryBeginConsume()}, and the producer cannot touch the
+ * buffers again until the consumer calls {@link #endConsume()}.
+ */
+public final class FrameSlot {
+  public static final int FREE = 0;
+  public static final int FILLING = 1;
+  public static final int READY = 2;
+  public static final int CONSUMING = 3;
+
+  private final AtomicInteger state = new AtomicInteger(FREE);
+
+  /** Producer: claims the slot to write a new frame. Returns false while it is still in use. */
+  public boolean tryBeginFill() {
+    return state.compareAndSet(FREE, FILLING);
+  }
+
+  /** Producer: publishes the frame to the consumer. */
+  public void commitFill() {
+    transition(FILLING, READY);
+  }
+
+  /** Producer: gives the slot back without publishing a frame. */
+  public void abortFill() {
+    transition(FILLING, FREE);
+  }
+
+  /** Consumer: takes the published frame. Returns false if there is none. */
+  public boolean tryBeginConsume() {
+    return state.compareAndSet(READY, CONSUMING);
+  }
+
+  /** Consumer: done with the frame; the producer may fill the slot again. */
+  public void endConsume() {
+    transition(CONSUMING, FREE);
+  }
+
+  public boolean isFree() {
+    return state.get() == FREE;
+  }
+
+  public int getState() {
+    return state.get();
+  }
+
+  /**
+   * Frees the slot whatever its state. Only for when neither thread can be using it, e.g. after a
+   * published frame was discarded because the inference thread was stopped.
+   */
+  public void reset() {
+    state.set(FREE);
+  }
+
+  private void transition(final int from, final int to) {
+    if (!state.compareAndSet(from, to)) {
+      throw new IllegalStateException("Frame slot is " + state.get() + ", expected " + from);
+    }
+  }
+}
@@ -0,0 +1,51 @@
+/* Copyright 2019 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow.lite.examples.detection.replay;
+
+import java.nio.ByteOrder;
+
+/**
+ * Layout of a frame capture file. All values are little-endian.
+ *
+ * <pre>
+ * file header:  int magic, int version
+ * frame header: long timestampNs, int format, int width, int height, int rotation, int planeCount
+ * plane header: int rowStride, int pixelStride, int length, followed by length bytes of data
+ * index footer: long frameOffset for every frame, int frameCount, int indexMagic
+ * </pre>
+ *
+ * <p>Plane data is stored exactly as the camera produced it, so the file can be memory-mapped and
+ * the planes handed to the YUV converters without any unpacking. The footer is written when the
+ * recording is closed; files without one (e.g. the app was killed) are indexed by scanning.
+ */
+public final class CaptureFormat {
+  public static final int MAGIC = 0x46524654; // "TFRF"
+  public static final int VERSION = 1;
+  public static final int INDEX_MAGIC = 0x49524654; // "TFRI"
+
+  // Same values as android.graphics.ImageFormat so they can be compared directly.
+  public static final int FORMAT_NV21 = 0x11;
+  public static final int FORMAT_YUV_420_888 = 0x23;
+
+  static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+  static final int FILE_HEADER_SIZE = 8;
+  static final int FRAME_HEADER_SIZE = 28;
+  static final int PLANE_HEADER_SIZE = 12;
+  static final int MAX_PLANES = 3;
+  static final int INDEX_TRAILER_SIZE = 8;
+
+  private CaptureFormat() {}
+}
@@ -0,0 +1,245 @@
+/* Copyright 2019 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow.lite.examples.detection.replay;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Random access to the frames of a capture file written by {@link FrameRecorder}.
+ *
+ * <p>The file is memory-mapped the same way the model is, and the planes of each frame are handed
+ * out as slices of the mapping, so reading a frame copies no pixel data. Large files are mapped in
+ * several segments, each holding whole frames.
+ */
+public class FrameCorpus implements Closeable {
+  // Keep every mapping well below the 2GB limit of a single MappedByteBuffer.
+  private static final long MAX_SEGMENT_SIZE = 1L << 30;
+
+  private final File file;
+  private final FileChannel channel;
+  private final long[] frameOffsets;
+  private final int[] frameSegments;
+  private final List<Segment> segments = new ArrayList<>();
+
+  public FrameCorpus(final File file) throws IOException {
+    this.file = file;
+    channel = new FileInputStream(file).getChannel();
+    try {
+      final ByteBuffer header =
+          ByteBuffer.allocate(CaptureFormat.FILE_HEADER_SIZE).order(CaptureFormat.BYTE_ORDER);
+      readFully(header, 0);
+      if (header.getInt(0) != CaptureFormat.MAGIC || header.getInt(4) != CaptureFormat.VERSION) {
+        throw new IOException("Not a capture file: " + file);
+      }
+
+      long[] offsets = readIndex();
+      final long dataEnd;
+      if (offsets != null) {
+        dataEnd = channel.size() - offsets.length * 8L - CaptureFormat.INDEX_TRAILER_SIZE;
+      } else {
+        offsets = scanIndex();
+        dataEnd = offsets.length > 0 ? endOfFrame(offsets[offsets.length - 1]) : 0;
+      }
+      frameOffsets = offsets;
+      frameSegments = new int[offsets.length];
+      mapSegments(dataEnd);
+    } catch (final IOException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  public File getFile() {
+    return file;
+  }
+
+  /** Returns the number of frames in the file. */
+  public int size() {
+    return frameOffsets.length;
+  }
+
+  /** Returns the frame at the given index. Its planes are read-only views into the mapping. */
+  public RecordedFrame get(final int index) throws IOException {
+    final Segment segment = segments.get(frameSegments[index]);
+    final ByteBuffer data = segment.buffer;
+    int position = (int) (frameOffsets[index] - segment.offset);
+
+    final long timestampNs = data.getLong(position);
+    final int format = data.getInt(position + 8);
+    final int width = data.getInt(position + 12);
+    final int height = data.getInt(position + 16);
+    final int rotation = data.getInt(position + 20);
+    final int planeCount = data.getInt(position + 24);
+    if (planeCount < 1 || planeCount > CaptureFormat.MAX_PLANES) {
+      throw new IOException("Corrupt frame " + index + ", plane count " + planeCount);
+    }
+    position += CaptureFormat.FRAME_HEADER_SIZE;
+
+    final ByteBuffer[] planes = new ByteBuffer[planeCount];
+    final int[] rowStrides = new int[planeCount];
+    final int[] pixelStrides = new int[planeCount];
+    for (int i = 0; i < planeCount; ++i) {
+      rowStrides[i] = data.getInt(position);
+      pixelStrides[i] = data.getInt(position + 4);
+      final int length = data.getInt(position + 8);
+      position += CaptureFormat.PLANE_HEADER_SIZE;
+
+      final ByteBuffer plane = data.duplicate();
+      plane.limit(position + length);
+      plane.position(position);
+      planes[i] = plane.slice();
+      position += length;
+    }
+    return new RecordedFrame(
+        timestampNs, format, width, height, rotation, planes, rowStrides, pixelStrides);
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  /** Reads the index footer, or returns null if the file does not have a valid one. */
+  private long[] readIndex() throws IOException {
+    final long size = channel.size();
+    if (size < CaptureFormat.FILE_HEADER_SIZE + CaptureFormat.INDEX_TRAILER_SIZE) {
+      return null;
+    }
+    final ByteBuffer trailer =
+        ByteBuffer.allocate(CaptureFormat.INDEX_TRAILER_SIZE).order(CaptureFormat.BYTE_ORDER);
+    readFully(trailer, size - CaptureFormat.INDEX_TRAILER_SIZE);
+    final int frameCount = trailer.getInt(0);
+    if (trailer.getInt(4) != CaptureFormat.INDEX_MAGIC || frameCount < 0) {
+      return null;
+    }
+    final long indexStart = size - CaptureFormat.INDEX_TRAILER_SIZE - frameCount * 8L;
+    if (indexStart < CaptureFormat.FILE_HEADER_SIZE) {
+      return null;
+    }
+
+    final ByteBuffer index = ByteBuffer.allocate(frameCount * 8).order(CaptureFormat.BYTE_ORDER);
+    readFully(index, indexStart);
+    final long[] offsets = new long[frameCount];
+    index.asLongBuffer().get(offsets);
+    return offsets;
+  }
+
+  /** Rebuilds the index by walking the frame headers, stopping at the first incomplete frame. */
+  private long[] scanIndex() throws IOException {
+    final long size = channel.size();
+    long[] offsets = new long[256];
+    int count = 0;
+    long offset = CaptureFormat.FILE_HEADER_SIZE;
+    while (offset < size) {
+      final long end;
+      try {
+        end = endOfFrame(offset);
+      } catch (final EOFException e) {
+        break;
+      }
+      if (end > size) {
+        break;
+      }
+      if (count == offsets.length) {
+        offsets = Arrays.copyOf(offsets, count * 2);
+      }
+      offsets[count++] = offset;
+      offset = end;
+    }
+    return Arrays.copyOf(offsets, count);
+  }
+
+  /** Returns the file offset just past the frame starting at the given offset. */
+  private long endOfFrame(final long frameOffset) throws IOException {
+    final ByteBuffer header =
+        ByteBuffer.allocate(CaptureFormat.PLANE_HEADER_SIZE).order(CaptureFormat.BYTE_ORDER);
+    header.limit(4);
+    readFully(header, frameOffset + CaptureFormat.FRAME_HEADER_SIZE - 4);
+    final int planeCount = header.getInt(0);
+    if (planeCount < 1 || planeCount > CaptureFormat.MAX_PLANES) {
+      throw new EOFException("Corrupt frame at " + frameOffset);
+    }
+
+    long position = frameOffset + CaptureFormat.FRAME_HEADER_SIZE;
+    for (int i = 0; i < planeCount; ++i) {
+      header.clear();
+      readFully(header, position);
+      position += CaptureFormat.PLANE_HEADER_SIZE + header.getInt(8);
+    }
+    return position;
+  }
+
+  /** Maps the frame data in segments that each hold a run of whole frames. */
+  private void mapSegments(final long dataEnd) throws IOException {
+    int first = 0;
+    while (first < frameOffsets.length) {
+      final long start = frameOffsets[first];
+      int last = first;
+      while (last + 1 < frameOffsets.length
+          && nextOffset(last + 1, dataEnd) - start <= MAX_SEGMENT_SIZE) {
+        ++last;
+      }
+      final long end = nextOffset(last, dataEnd);
+      if (end - start > Integer.MAX_VALUE) {
+        throw new IOException("Frame " + first + " is too large to map");
+      }
+
+      final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+      buffer.order(CaptureFormat.BYTE_ORDER);
+      for (int i = first; i <= last; ++i) {
+        frameSegments[i] = segments.size();
+      }
+      segments.add(new Segment(start, buffer));
+      first = last + 1;
+    }
+  }
+
+  /** Returns the offset just past the given frame. */
+  private long nextOffset(final int frame, final long dataEnd) {
+    return frame + 1 < frameOffsets.length ? frameOffsets[frame + 1] : dataEnd;
+  }
+
+  private void readFully(final ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      final int read = channel.read(buffer, position);
+      if (read < 0) {
+        throw new EOFException("Truncated capture file: " + file);
+      }
+      position += read;
+    }
+    buffer.flip();
+  }
+
+  private static class Segment {
+    final long offset;
+    final ByteBuffer buffer;
+
+    Segment(final long offset, final ByteBuffer buffer) {
+      this.offset = offset;
+      this.buffer = buffer;
+    }
+  }
+}
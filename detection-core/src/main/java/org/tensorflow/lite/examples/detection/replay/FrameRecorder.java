@@ -0,0 +1,130 @@
+/* Copyright 2019 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow.lite.examples.detection.replay;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/** Appends raw camera frames to a capture file in the {@link CaptureFormat} layout. */
+public class FrameRecorder implements Closeable {
+  private final FileChannel channel;
+  private final ByteBuffer header;
+  private long[] frameOffsets = new long[256];
+  private int frameCount;
+
+  public FrameRecorder(final File file) throws IOException {
+    channel = new FileOutputStream(file).getChannel();
+    header =
+        ByteBuffer.allocateDirect(
+                CaptureFormat.FRAME_HEADER_SIZE
+                    + CaptureFormat.MAX_PLANES * CaptureFormat.PLANE_HEADER_SIZE)
+            .order(CaptureFormat.BYTE_ORDER);
+
+    header.putInt(CaptureFormat.MAGIC);
+    header.putInt(CaptureFormat.VERSION);
+    header.flip();
+    writeFully(header);
+  }
+
+  /**
+   * Writes one frame. The plane buffers are read from their current position to their limit and
+   * are left untouched, so the caller can still consume them afterwards.
+   *
+   * @param timestampNs Sensor timestamp of the frame.
+   * @param format One of the {@link CaptureFormat} FORMAT_* values.
+   * @param width Width of the frame in pixels.
+   * @param height Height of the frame in pixels.
+   * @param rotation Rotation of the camera sensor in degrees.
+   * @param planes Plane data, Y first.
+   * @param rowStrides Row stride of each plane.
+   * @param pixelStrides Pixel stride of each plane.
+   */
+  public synchronized void writeFrame(
+      final long timestampNs,
+      final int format,
+      final int width,
+      final int height,
+      final int rotation,
+      final ByteBuffer[] planes,
+      final int[] rowStrides,
+      final int[] pixelStrides)
+      throws IOException {
+    if (planes.length > CaptureFormat.MAX_PLANES) {
+      throw new IllegalArgumentException("Too many planes: " + planes.length);
+    }
+
+    if (frameCount == frameOffsets.length) {
+      frameOffsets = Arrays.copyOf(frameOffsets, frameCount * 2);
+    }
+    frameOffsets[frameCount] = channel.position();
+
+    header.clear();
+    header.putLong(timestampNs);
+    header.putInt(format);
+    header.putInt(width);
+    header.putInt(height);
+    header.putInt(rotation);
+    header.putInt(planes.length);
+    header.flip();
+    writeFully(header);
+
+    for (int i = 0; i < planes.length; ++i) {
+      final ByteBuffer data = planes[i].duplicate();
+      header.clear();
+      header.putInt(rowStrides[i]);
+      header.putInt(pixelStrides[i]);
+      header.putInt(data.remaining());
+      header.flip();
+      writeFully(header);
+      writeFully(data);
+    }
+    ++frameCount;
+  }
+
+  public synchronized int getFrameCount() {
+    return frameCount;
+  }
+
+  /** Writes the index footer and closes the file. */
+  @Override
+  public synchronized void close() throws IOException {
+    try {
+      final ByteBuffer index =
+          ByteBuffer.allocate(frameCount * 8 + CaptureFormat.INDEX_TRAILER_SIZE)
+              .order(CaptureFormat.BYTE_ORDER);
+      for (int i = 0; i < frameCount; ++i) {
+        index.putLong(frameOffsets[i]);
+      }
+      index.putInt(frameCount);
+      index.putInt(CaptureFormat.INDEX_MAGIC);
+      index.flip();
+      writeFully(index);
+    } finally {
+      channel.close();
+    }
+  }
+
+  private void writeFully(final ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+}
@@ -0,0 +1,61 @@
+/* Copyright 2019 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow.lite.examples.detection.replay;
+
+import java.nio.ByteBuffer;
+
+/** A single camera frame read back from a capture file. */
+public class RecordedFrame {
+  /** Sensor timestamp of the frame in nanoseconds. */
+  public final long timestampNs;
+
+  /** One of the {@link CaptureFormat} FORMAT_* values. */
+  public final int format;
+
+  public final int width;
+  public final int height;
+
+  /** Rotation of the camera sensor in degrees, as reported when the frame was recorded. */
+  public final int rotation;
+
+  /**
+   * Raw plane data, Y first, then U and V for {@link CaptureFormat#FORMAT_YUV_420_888}. Read with
+   * absolute gets; the buffers may be views into a shared mapping.
+   */
+  public final ByteBuffer[] planes;
+
+  public final int[] rowStrides;
+  public final int[] pixelStrides;
+
+  public RecordedFrame(
+      final long timestampNs,
+      final int format,
+      final int width,
+      final int height,
+      final int rotation,
+      final ByteBuffer[] planes,
+      final int[] rowStrides,
+      final int[] pixelStrides) {
+    this.timestampNs = timestampNs;
+    this.format = format;
+    this.width = width;
+    this.height = height;
+    this.rotation = rotation;
+    this.planes = planes;
+    this.rowStrides = rowStrides;
+    this.pixelStrides = pixelStrides;
+  }
+}
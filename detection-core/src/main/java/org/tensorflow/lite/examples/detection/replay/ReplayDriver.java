@@ -0,0 +1,193 @@
+/* Copyright 2019 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow.lite.examples.detection.replay;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Feeds the frames of a capture file into a {@link FrameSink} on a dedicated thread.
+ *
+ * <p>In full speed mode every frame is delivered and the driver waits for the sink to finish the
+ * previous frame before sending the next one, which gives repeatable throughput and accuracy
+ * numbers. In real time mode frames are delivered at their recorded timestamps and dropped while
+ * the sink is busy, like the camera does.
+ */
+public class ReplayDriver implements Runnable {
+
+  /** Receives replayed frames. Called on the replay thread. */
+  public interface FrameSink {
+    void onReplayFrame(RecordedFrame frame);
+  }
+
+  /** Notified on the replay thread once the whole file has been replayed or replay failed. */
+  public interface Listener {
+    void onReplayFinished(ReplayDriver driver);
+  }
+
+  private final File file;
+  private final boolean realTime;
+  private final FrameSink sink;
+  private final Listener listener;
+
+  // One permit while the sink is idle. Released by onFrameProcessed().
+  private final Semaphore pipelineIdle = new Semaphore(1);
+
+  private final AtomicInteger framesRead = new AtomicInteger();
+  private final AtomicInteger framesDropped = new AtomicInteger();
+  private final AtomicInteger framesProcessed = new AtomicInteger();
+  private final AtomicInteger framesDetected = new AtomicInteger();
+
+  private Thread thread;
+  private volatile boolean running;
+  private volatile long elapsedNs;
+  private volatile IOException error;
+
+  public ReplayDriver(
+      final File file, final boolean realTime, final FrameSink sink, final Listener listener) {
+    this.file = file;
+    this.realTime = realTime;
+    this.sink = sink;
+    this.listener = listener;
+  }
+
+  public synchronized void start() {
+    if (thread != null) {
+      return;
+    }
+    running = true;
+    thread = new Thread(this, "replay");
+    thread.start();
+  }
+
+  public synchronized void stop() {
+    if (thread == null) {
+      return;
+    }
+    running = false;
+    thread.interrupt();
+    try {
+      thread.join();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    thread = null;
+  }
+
+  /**
+   * Must be called by the sink once a frame has gone through the whole pipeline.
+   *
+   * @param detected Whether the target object was found in the frame.
+   */
+  public void onFrameProcessed(final boolean detected) {
+    framesProcessed.incrementAndGet();
+    if (detected) {
+      framesDetected.incrementAndGet();
+    }
+    pipelineIdle.release();
+  }
+
+  @Override
+  public void run() {
+    final long startNs = System.nanoTime();
+    try (FrameCorpus corpus = new FrameCorpus(file)) {
+      long firstTimestampNs = -1;
+      for (int i = 0; running && i < corpus.size(); ++i) {
+        final RecordedFrame frame = corpus.get(i);
+        framesRead.incrementAndGet();
+
+        if (realTime) {
+          if (firstTimestampNs < 0) {
+            firstTimestampNs = frame.timestampNs;
+          }
+          final long delayNs = startNs + frame.timestampNs - firstTimestampNs - System.nanoTime();
+          if (delayNs > 0) {
+            Thread.sleep(delayNs / 1000000, (int) (delayNs % 1000000));
+          }
+          if (!pipelineIdle.tryAcquire()) {
+            framesDropped.incrementAndGet();
+            continue;
+          }
+        } else {
+          pipelineIdle.acquire();
+        }
+        sink.onReplayFrame(frame);
+      }
+
+      // Wait for the last frame to make it through the pipeline.
+      if (running) {
+        pipelineIdle.acquire();
+        pipelineIdle.release();
+      }
+    } catch (final IOException e) {
+      error = e;
+    } catch (final InterruptedException e) {
+      // Stopped.
+    }
+    elapsedNs = System.nanoTime() - startNs;
+
+    if (running && listener != null) {
+      listener.onReplayFinished(this);
+    }
+  }
+
+  public boolean isRealTime() {
+    return realTime;
+  }
+
+  public int getFramesRead() {
+    return framesRead.get();
+  }
+
+  public int getFramesDropped() {
+    return framesDropped.get();
+  }
+
+  public int getFramesProcessed() {
+    return framesProcessed.get();
+  }
+
+  public int getFramesDetected() {
+    return framesDetected.get();
+  }
+
+  public long getElapsedMs() {
+    return elapsedNs / 1000000;
+  }
+
+  /** Returns the error that stopped the replay, or null if the whole file was read. */
+  public IOException getError() {
+    return error;
+  }
+
+  @Override
+  public String toString() {
+    final long elapsedMs = getElapsedMs();
+    final float fps = elapsedMs > 0 ? getFramesProcessed() * 1000.0f / elapsedMs : 0;
+    return String.format(
+        "%s: read %d, dropped %d, processed %d, detected %d in %d ms (%.1f fps)%s",
+        file.getName(),
+        getFramesRead(),
+        getFramesDropped(),
+        getFramesProcessed(),
+        getFramesDetected(),
+        elapsedMs,
+        fps,
+        error != null ? ", failed: " + error.getMessage() : "");
+  }
+}
@@ -0,0 +1,179 @@
+/* Copyright 2019 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow.lite.examples.detection.tflite;
+
+/**
+ * The detections of one image, kept in parallel primitive arrays.
+ *
+ * <p>Detection {@code i} has its box at {@code boxes[4 * i]} to {@code boxes[4 * i + 3]} as left,
+ * top, right, bottom, its score at {@code scores[i]}, and its class at {@code classes[i]} with the
+ * label {@code labels[i]}. A batch is filled once per frame and then filtered and transformed in
+ * place, so the same arrays go through every stage without objects being created per detection.
+ * The array getters return the arrays themselves; only the first {@link #size()} entries are valid.
+ */
+public final class DetectionBatch {
+  private final float[] boxes;
+  private final float[] scores;
+  private final int[] classes;
+  private final String[] labels;
+  private int size;
+
+  public DetectionBatch(final int capacity) {
+    boxes = new float[capacity * 4];
+    scores = new float[capacity];
+    classes = new int[capacity];
+    labels = new String[capacity];
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public int capacity() {
+    return scores.length;
+  }
+
+  public void clear() {
+    size = 0;
+  }
+
+  /** Appends a detection. Returns false if the batch is full. */
+  public boolean add(
+      final float left,
+      final float top,
+      final float right,
+      final float bottom,
+      final float score,
+      final int classIndex,
+      final String label) {
+    if (size == scores.length) {
+      return false;
+    }
+    final int b = size * 4;
+    boxes[b] = left;
+    boxes[b + 1] = top;
+    boxes[b + 2] = right;
+    boxes[b + 3] = bottom;
+    scores[size] = score;
+    classes[size] = classIndex;
+    labels[size] = label;
+    ++size;
+    return true;
+  }
+
+  public float getLeft(final int i) {
+    return boxes[i * 4];
+  }
+
+  public float getTop(final int i) {
+    return boxes[i * 4 + 1];
+  }
+
+  public float getRight(final int i) {
+    return boxes[i * 4 + 2];
+  }
+
+  public float getBottom(final int i) {
+    return boxes[i * 4 + 3];
+  }
+
+  public float getWidth(final int i) {
+    return boxes[i * 4 + 2] - boxes[i * 4];
+  }
+
+  public float getHeight(final int i) {
+    return boxes[i * 4 + 3] - boxes[i * 4 + 1];
+  }
+
+  public float getScore(final int i) {
+    return scores[i];
+  }
+
+  public int getClassIndex(final int i) {
+    return classes[i];
+  }
+
+  public String getLabel(final int i) {
+    return labels[i];
+  }
+
+  /** The boxes as left, top, right, bottom quadruples. Can be transformed in place. */
+  public float[] boxes() {
+    return boxes;
+  }
+
+  public float[] scores() {
+    return scores;
+  }
+
+  public int[] classes() {
+    return classes;
+  }
+
+  public String[] labels() {
+    return labels;
+  }
+
+  /** Returns the highest score of the detections with the given label, or 0 if there are none. */
+  public float getBestScore(final String label) {
+    float best = 0;
+    for (int i = 0; i < size; ++i) {
+      if (scores[i] > best && label.equals(labels[i])) {
+        best = scores[i];
+      }
+    }
+    return best;
+  }
+
+  /** Drops the detections scoring below the threshold, keeping the order of the others. */
+  public void retainScoresAtLeast(final float minimumScore) {
+    int kept = 0;
+    for (int i = 0; i < size; ++i) {
+      if (scores[i] >= minimumScore) {
+        if (kept != i) {
+          System.arraycopy(boxes, i * 4, boxes, kept * 4, 4);
+          scores[kept] = scores[i];
+          classes[kept] = classes[i];
+          labels[kept] = labels[i];
+        }
+        ++kept;
+      }
+    }
+    for (int i = kept; i < size; ++i) {
+      labels[i] = null;
+    }
+    size = kept;
+  }
+
+  /**
+   * Puts left before right and top before bottom in every box again, e.g. after the corners were
+   * mapped through a rotation.
+   */
+  public void sortBoxCorners() {
+    for (int b = 0; b < size * 4; b += 4) {
+      if (boxes[b] > boxes[b + 2]) {
+        final float t = boxes[b];
+        boxes[b] = boxes[b + 2];
+        boxes[b + 2] = t;
+      }
+      if (boxes[b + 1] > boxes[b + 3]) {
+        final float t = boxes[b + 1];
+        boxes[b + 1] = boxes[b + 3];
+        boxes[b + 3] = t;
+      }
+    }
+  }
+}
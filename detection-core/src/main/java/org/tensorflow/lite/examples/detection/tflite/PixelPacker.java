@@ -0,0 +1,212 @@
+/* Copyright 2019 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow.lite.examples.detection.tflite;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Packs ARGB pixels into the RGB layout of a model input tensor.
+ *
+ * <p>The model sees each channel value {@code v} as {@code (v - mean) / std}. For a quantized
+ * input tensor that real value is further mapped to {@code round(real / scale) + zeroPoint}, using
+ * the quantization parameters of the tensor. There are only 256 channel values, so the encoding of
+ * each is computed once and packing is a table lookup per channel.
+ */
+public final class PixelPacker {
+
+  /** Data types of the input tensor that can be packed. */
+  public enum Type {
+    UINT8(1),
+    INT8(1),
+    FLOAT16(2),
+    FLOAT32(4);
+
+    final int bytesPerChannel;
+
+    Type(final int bytesPerChannel) {
+      this.bytesPerChannel = bytesPerChannel;
+    }
+  }
+
+  private static final int NUM_CHANNEL_VALUES = 256;
+
+  private final Type type;
+  // Encoding of every channel value, for the tables that apply to the type.
+  private final byte[] byteTable;
+  private final short[] halfTable;
+  private final float[] floatTable;
+
+  private PixelPacker(
+      final Type type, final byte[] byteTable, final short[] halfTable, final float[] floatTable) {
+    this.type = type;
+    this.byteTable = byteTable;
+    this.halfTable = halfTable;
+    this.floatTable = floatTable;
+  }
+
+  /**
+   * Creates the packer for an input tensor.
+   *
+   * @param dataType Name of the tensor data type, e.g. {@code "UINT8"} or {@code "FLOAT32"}.
+   * @param scale Quantization scale of the tensor, 0 if it has none.
+   * @param zeroPoint Quantization zero point of the tensor.
+   * @param mean Channel value the model sees as 0.
+   * @param std Channel value range the model sees as 1.
+   * @throws IllegalArgumentException if the data type cannot be packed.
+   */
+  public static PixelPacker create(
+      final String dataType,
+      final float scale,
+      final int zeroPoint,
+      final float mean,
+      final float std) {
+    final Type type;
+    try {
+      type = Type.valueOf(dataType);
+    } catch (final IllegalArgumentException e) {
+      throw new IllegalArgumentException("Unsupported input type " + dataType);
+    }
+
+    switch (type) {
+      case UINT8:
+        return new PixelPacker(
+            type, quantizedTable(scale, zeroPoint, mean, std, 0, 255), null, null);
+      case INT8:
+        return new PixelPacker(
+            type, quantizedTable(scale, zeroPoint, mean, std, -128, 127), null, null);
+      case FLOAT16:
+        final short[] halfTable = new short[NUM_CHANNEL_VALUES];
+        for (int v = 0; v < NUM_CHANNEL_VALUES; ++v) {
+          halfTable[v] = toHalf((v - mean) / std);
+        }
+        return new PixelPacker(type, null, halfTable, null);
+      default:
+        final float[] floatTable = new float[NUM_CHANNEL_VALUES];
+        for (int v = 0; v < NUM_CHANNEL_VALUES; ++v) {
+          floatTable[v] = (v - mean) / std;
+        }
+        return new PixelPacker(type, null, null, floatTable);
+    }
+  }
+
+  public Type getType() {
+    return type;
+  }
+
+  public int getBytesPerChannel() {
+    return type.bytesPerChannel;
+  }
+
+  /** Appends {@code count} pixels to the buffer, three channels each. */
+  public void pack(final int[] pixels, final int count, final ByteBuffer out) {
+    switch (type) {
+      case UINT8:
+      case INT8:
+        packBytes(pixels, count, out);
+        break;
+      case FLOAT16:
+        packHalves(pixels, count, out);
+        break;
+      default:
+        packFloats(pixels, count, out);
+        break;
+    }
+  }
+
+  private void packBytes(final int[] pixels, final int count, final ByteBuffer out) {
+    final byte[] table = byteTable;
+    for (int i = 0; i < count; ++i) {
+      final int pixelValue = pixels[i];
+      out.put(table[(pixelValue >> 16) & 0xFF]);
+      out.put(table[(pixelValue >> 8) & 0xFF]);
+      out.put(table[pixelValue & 0xFF]);
+    }
+  }
+
+  private void packHalves(final int[] pixels, final int count, final ByteBuffer out) {
+    final short[] table = halfTable;
+    for (int i = 0; i < count; ++i) {
+      final int pixelValue = pixels[i];
+      out.putShort(table[(pixelValue >> 16) & 0xFF]);
+      out.putShort(table[(pixelValue >> 8) & 0xFF]);
+      out.putShort(table[pixelValue & 0xFF]);
+    }
+  }
+
+  private void packFloats(final int[] pixels, final int count, final ByteBuffer out) {
+    final float[] table = floatTable;
+    for (int i = 0; i < count; ++i) {
+      final int pixelValue = pixels[i];
+      out.putFloat(table[(pixelValue >> 16) & 0xFF]);
+      out.putFloat(table[(pixelValue >> 8) & 0xFF]);
+      out.putFloat(table[pixelValue & 0xFF]);
+    }
+  }
+
+  private static byte[] quantizedTable(
+      final float scale,
+      final int zeroPoint,
+      final float mean,
+      final float std,
+      final int min,
+      final int max) {
+    final byte[] table = new byte[NUM_CHANNEL_VALUES];
+    for (int v = 0; v < NUM_CHANNEL_VALUES; ++v) {
+      // Without quantization parameters the tensor takes the channel values as they are, shifted
+      // into the signed range for INT8.
+      final int q = scale > 0 ? Math.round((v - mean) / std / scale) + zeroPoint : v + min;
+      table[v] = (byte) Math.max(min, Math.min(max, q));
+    }
+    return table;
+  }
+
+  /** Converts to IEEE 754 half precision, rounding to nearest even. */
+  static short toHalf(final float value) {
+    final int bits = Float.floatToIntBits(value);
+    final int sign = (bits >>> 16) & 0x8000;
+    final int exponent = ((bits >>> 23) & 0xFF) - 127 + 15;
+    int mantissa = bits & 0x7FFFFF;
+
+    if (exponent >= 0x1F) {
+      // Too large, or infinity or NaN.
+      final boolean isNaN = ((bits >>> 23) & 0xFF) == 0xFF && mantissa != 0;
+      return (short) (sign | 0x7C00 | (isNaN ? 0x200 : 0));
+    }
+    if (exponent <= 0) {
+      if (exponent < -10) {
+        return (short) sign;
+      }
+      // Subnormal: shift the mantissa, with its implicit leading bit, into place.
+      mantissa |= 0x800000;
+      final int shift = 14 - exponent;
+      int half = mantissa >> shift;
+      final int rest = mantissa & ((1 << shift) - 1);
+      final int halfway = 1 << (shift - 1);
+      if (rest > halfway || (rest == halfway && (half & 1) != 0)) {
+        ++half;
+      }
+      return (short) (sign | half);
+    }
+
+    int half = (exponent << 10) | (mantissa >> 13);
+    final int rest = mantissa & 0x1FFF;
+    if (rest > 0x1000 || (rest == 0x1000 && (half & 1) != 0)) {
+      // May carry into the exponent, which is still the correctly rounded result.
+      ++half;
+    }
+    return (short) (sign | half);
+  }
+}
@@ -0,0 +1,185 @@
+/* Copyright 2019 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow.lite.examples.detection.env;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Compares YuvConverter with the conversion ImageUtils did before it moved here, copied below as
+ * the reference.
+ */
+public class YuvConverterTest {
+  private static final int WIDTH = 64;
+  private static final int HEIGHT = 48;
+
+  private final Random random = new Random(42);
+
+  @Test
+  public void convertsNv21LikeImageUtils() {
+    final byte[] nv21 = randomBytes(YuvConverter.getYUVByteSize(WIDTH, HEIGHT));
+    final int[] expected = new int[WIDTH * HEIGHT];
+    Reference.convertYUV420SPToARGB8888(nv21, WIDTH, HEIGHT, expected);
+
+    final int[] fromArray = new int[WIDTH * HEIGHT];
+    YuvConverter.convertYUV420SPToARGB8888(nv21, WIDTH, HEIGHT, fromArray);
+    assertArrayEquals(expected, fromArray);
+
+    final int[] fromBuffer = new int[WIDTH * HEIGHT];
+    YuvConverter.convertYUV420SPToARGB8888(direct(nv21), WIDTH, HEIGHT, fromBuffer);
+    assertArrayEquals(expected, fromBuffer);
+  }
+
+  @Test
+  public void convertsYuv420LikeImageUtils() {
+    // Padded rows and interleaved chroma, as camera2 delivers them.
+    final int yRowStride = WIDTH + 16;
+    final int uvRowStride = WIDTH + 16;
+    final int uvPixelStride = 2;
+    final byte[] y = randomBytes(yRowStride * HEIGHT);
+    final byte[] u = randomBytes(uvRowStride * HEIGHT / 2 - 1);
+    final byte[] v = randomBytes(uvRowStride * HEIGHT / 2 - 1);
+
+    final int[] expected = new int[WIDTH * HEIGHT];
+    Reference.convertYUV420ToARGB8888(
+        y, u, v, WIDTH, HEIGHT, yRowStride, uvRowStride, uvPixelStride, expected);
+
+    final int[] fromArrays = new int[WIDTH * HEIGHT];
+    YuvConverter.convertYUV420ToARGB8888(
+        y, u, v, WIDTH, HEIGHT, yRowStride, uvRowStride, uvPixelStride, fromArrays);
+    assertArrayEquals(expected, fromArrays);
+
+    final int[] fromBuffers = new int[WIDTH * HEIGHT];
+    YuvConverter.convertYUV420ToARGB8888(
+        direct(y),
+        direct(u),
+        direct(v),
+        WIDTH,
+        HEIGHT,
+        yRowStride,
+        uvRowStride,
+        uvPixelStride,
+        fromBuffers);
+    assertArrayEquals(expected, fromBuffers);
+  }
+
+  @Test
+  public void readsBufferSlicesFromTheirStart() {
+    // Planes handed out by FrameCorpus are slices of a larger mapping.
+    final byte[] nv21 = randomBytes(YuvConverter.getYUVByteSize(WIDTH, HEIGHT));
+    final ByteBuffer mapping = ByteBuffer.allocateDirect(nv21.length + 100);
+    mapping.position(100);
+    mapping.put(nv21);
+    mapping.position(100);
+
+    final int[] expected = new int[WIDTH * HEIGHT];
+    Reference.convertYUV420SPToARGB8888(nv21, WIDTH, HEIGHT, expected);
+    final int[] actual = new int[WIDTH * HEIGHT];
+    YuvConverter.convertYUV420SPToARGB8888(mapping.slice(), WIDTH, HEIGHT, actual);
+    assertArrayEquals(expected, actual);
+  }
+
+  @Test
+  public void sizesOddDimensionsUp() {
+    assertEquals(WIDTH * HEIGHT * 3 / 2, YuvConverter.getYUVByteSize(WIDTH, HEIGHT));
+    // 3x3 luma, 2x2 blocks of chroma with two bytes each.
+    assertEquals(9 + 8, YuvConverter.getYUVByteSize(3, 3));
+  }
+
+  private byte[] randomBytes(final int length) {
+    final byte[] bytes = new byte[length];
+    random.nextBytes(bytes);
+    return bytes;
+  }
+
+  private static ByteBuffer direct(final byte[] bytes) {
+    final ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+    buffer.put(bytes);
+    buffer.flip();
+    return buffer;
+  }
+
+  /** The YUV conversion of the original ImageUtils. */
+  private static final class Reference {
+    static final int kMaxChannelValue = 262143;
+
+    static void convertYUV420SPToARGB8888(byte[] input, int width, int height, int[] output) {
+      final int frameSize = width * height;
+      for (int j = 0, yp = 0; j < height; j++) {
+        int uvp = frameSize + (j >> 1) * width;
+        int u = 0;
+        int v = 0;
+
+        for (int i = 0; i < width; i++, yp++) {
+          int y = 0xff & input[yp];
+          if ((i & 1) == 0) {
+            v = 0xff & input[uvp++];
+            u = 0xff & input[uvp++];
+          }
+
+          output[yp] = YUV2RGB(y, u, v);
+        }
+      }
+    }
+
+    private static int YUV2RGB(int y, int u, int v) {
+      // Adjust and check YUV values
+      y = (y - 16) < 0 ? 0 : (y - 16);
+      u -= 128;
+      v -= 128;
+
+      int y1192 = 1192 * y;
+      int r = (y1192 + 1634 * v);
+      int g = (y1192 - 833 * v - 400 * u);
+      int b = (y1192 + 2066 * u);
+
+      // Clipping RGB values to be inside boundaries [ 0 , kMaxChannelValue ]
+      r = r > kMaxChannelValue ? kMaxChannelValue : (r < 0 ? 0 : r);
+      g = g > kMaxChannelValue ? kMaxChannelValue : (g < 0 ? 0 : g);
+      b = b > kMaxChannelValue ? kMaxChannelValue : (b < 0 ? 0 : b);
+
+      return 0xff000000 | ((r << 6) & 0xff0000) | ((g >> 2) & 0xff00) | ((b >> 10) & 0xff);
+    }
+
+    static void convertYUV420ToARGB8888(
+        byte[] yData,
+        byte[] uData,
+        byte[] vData,
+        int width,
+        int height,
+        int yRowStride,
+        int uvRowStride,
+        int uvPixelStride,
+        int[] out) {
+      int yp = 0;
+      for (int j = 0; j < height; j++) {
+        int pY = yRowStride * j;
+        int pUV = uvRowStride * (j >> 1);
+
+        for (int i = 0; i < width; i++) {
+          int uv_offset = pUV + (i >> 1) * uvPixelStride;
+
+          out[yp++] =
+              YUV2RGB(0xff & yData[pY + i], 0xff & uData[uv_offset], 0xff & vData[uv_offset]);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,202 @@
+/* Copyright 2019 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow.lite.examples.detection.replay;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Writes frames with FrameRecorder and reads them back with FrameCorpus. */
+public class FrameCorpusTest {
+  private static final int WIDTH = 8;
+  private static final int HEIGHT = 6;
+
+  private final Random random = new Random(42);
+  private File file;
+
+  @Before
+  public void setUp() throws IOException {
+    file = File.createTempFile("frames", ".capture");
+  }
+
+  @After
+  public void tearDown() {
+    file.delete();
+  }
+
+  @Test
+  public void readsFramesThroughIndex() throws IOException {
+    final RecordedFrame[] frames = {nv21Frame(1000), yuvFrame(2000), yuvFrame(3000)};
+    record(frames);
+
+    try (FrameCorpus corpus = new FrameCorpus(file)) {
+      assertFrames(frames, corpus);
+    }
+  }
+
+  @Test
+  public void scansFramesWithoutIndex() throws IOException {
+    final RecordedFrame[] frames = {yuvFrame(1000), nv21Frame(2000), yuvFrame(3000)};
+    record(frames);
+    // What the recorder leaves behind when the app is killed: no footer.
+    truncate(file.length() - frames.length * 8 - CaptureFormat.INDEX_TRAILER_SIZE);
+
+    try (FrameCorpus corpus = new FrameCorpus(file)) {
+      assertFrames(frames, corpus);
+    }
+  }
+
+  @Test
+  public void dropsIncompleteLastFrameWithoutIndex() throws IOException {
+    final RecordedFrame[] frames = {yuvFrame(1000), yuvFrame(2000)};
+    record(frames);
+    // Cut into the plane data of the second frame.
+    truncate(file.length() - frames.length * 8 - CaptureFormat.INDEX_TRAILER_SIZE - 5);
+
+    try (FrameCorpus corpus = new FrameCorpus(file)) {
+      assertFrames(new RecordedFrame[] {frames[0]}, corpus);
+    }
+  }
+
+  @Test
+  public void readsEmptyRecording() throws IOException {
+    record(new RecordedFrame[0]);
+    try (FrameCorpus corpus = new FrameCorpus(file)) {
+      assertEquals(0, corpus.size());
+    }
+  }
+
+  @Test
+  public void leavesPlaneBuffersUntouched() throws IOException {
+    final RecordedFrame frame = yuvFrame(1000);
+    try (FrameRecorder recorder = new FrameRecorder(file)) {
+      write(recorder, frame);
+      assertEquals(1, recorder.getFrameCount());
+    }
+    for (final ByteBuffer plane : frame.planes) {
+      assertEquals(0, plane.position());
+      assertEquals(plane.capacity(), plane.limit());
+    }
+  }
+
+  @Test
+  public void rejectsOtherFiles() throws IOException {
+    try (FileOutputStream out = new FileOutputStream(file)) {
+      out.write(new byte[64]);
+    }
+    try {
+      new FrameCorpus(file).close();
+      fail("Opened a file without the capture header");
+    } catch (final IOException expected) {
+      assertTrue(expected.getMessage().contains(file.getName()));
+    }
+  }
+
+  private void record(final RecordedFrame[] frames) throws IOException {
+    try (FrameRecorder recorder = new FrameRecorder(file)) {
+      for (final RecordedFrame frame : frames) {
+        write(recorder, frame);
+      }
+    }
+  }
+
+  private static void write(final FrameRecorder recorder, final RecordedFrame frame)
+      throws IOException {
+    recorder.writeFrame(
+        frame.timestampNs,
+        frame.format,
+        frame.width,
+        frame.height,
+        frame.rotation,
+        frame.planes,
+        frame.rowStrides,
+        frame.pixelStrides);
+  }
+
+  private void truncate(final long length) throws IOException {
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      raf.setLength(length);
+    }
+  }
+
+  private static void assertFrames(final RecordedFrame[] expected, final FrameCorpus corpus)
+      throws IOException {
+    assertEquals(expected.length, corpus.size());
+    for (int i = 0; i < expected.length; ++i) {
+      final RecordedFrame want = expected[i];
+      final RecordedFrame got = corpus.get(i);
+      assertEquals(want.timestampNs, got.timestampNs);
+      assertEquals(want.format, got.format);
+      assertEquals(want.width, got.width);
+      assertEquals(want.height, got.height);
+      assertEquals(want.rotation, got.rotation);
+      assertArrayEquals(want.rowStrides, got.rowStrides);
+      assertArrayEquals(want.pixelStrides, got.pixelStrides);
+      assertEquals(want.planes.length, got.planes.length);
+      for (int p = 0; p < want.planes.length; ++p) {
+        assertEquals(want.planes[p], got.planes[p]);
+      }
+    }
+  }
+
+  private RecordedFrame nv21Frame(final long timestampNs) {
+    final ByteBuffer data = randomPlane(WIDTH * HEIGHT * 3 / 2);
+    return new RecordedFrame(
+        timestampNs,
+        CaptureFormat.FORMAT_NV21,
+        WIDTH,
+        HEIGHT,
+        90,
+        new ByteBuffer[] {data},
+        new int[] {WIDTH},
+        new int[] {1});
+  }
+
+  // Planes as a camera delivers them: padded rows, and interleaved chroma.
+  private RecordedFrame yuvFrame(final long timestampNs) {
+    final int rowStride = WIDTH + 4;
+    return new RecordedFrame(
+        timestampNs,
+        CaptureFormat.FORMAT_YUV_420_888,
+        WIDTH,
+        HEIGHT,
+        270,
+        new ByteBuffer[] {
+          randomPlane(rowStride * HEIGHT),
+          randomPlane(rowStride * HEIGHT / 2 - 1),
+          randomPlane(rowStride * HEIGHT / 2 - 1)
+        },
+        new int[] {rowStride, rowStride, rowStride},
+        new int[] {1, 2, 2});
+  }
+
+  private ByteBuffer randomPlane(final int length) {
+    final byte[] bytes = new byte[length];
+    random.nextBytes(bytes);
+    return ByteBuffer.wrap(bytes);
+  }
+}
@@ -0,0 +1,143 @@
+/* Copyright 2019 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow.lite.examples.detection.tflite;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/** Tests the accessors, array views and in-place filtering of DetectionBatch. */
+public class DetectionBatchTest {
+
+  @Test
+  public void addsUntilFull() {
+    final DetectionBatch batch = new DetectionBatch(2);
+    assertEquals(2, batch.capacity());
+    assertTrue(batch.add(1, 2, 3, 4, 0.5f, 7, "cup"));
+    assertTrue(batch.add(5, 6, 7, 8, 0.6f, 8, "fork"));
+    assertFalse(batch.add(9, 9, 9, 9, 0.7f, 9, "knife"));
+    assertEquals(2, batch.size());
+
+    batch.clear();
+    assertEquals(0, batch.size());
+    assertTrue(batch.add(9, 9, 9, 9, 0.7f, 9, "knife"));
+  }
+
+  @Test
+  public void readsDetectionsBack() {
+    final DetectionBatch batch = new DetectionBatch(4);
+    batch.add(10, 20, 40, 80, 0.9f, 3, "toothbrush");
+
+    assertEquals(10, batch.getLeft(0), 0);
+    assertEquals(20, batch.getTop(0), 0);
+    assertEquals(40, batch.getRight(0), 0);
+    assertEquals(80, batch.getBottom(0), 0);
+    assertEquals(30, batch.getWidth(0), 0);
+    assertEquals(60, batch.getHeight(0), 0);
+    assertEquals(0.9f, batch.getScore(0), 0);
+    assertEquals(3, batch.getClassIndex(0));
+    assertEquals("toothbrush", batch.getLabel(0));
+  }
+
+  @Test
+  public void viewsAreTheBackingArrays() {
+    final DetectionBatch batch = new DetectionBatch(4);
+    batch.add(10, 20, 40, 80, 0.9f, 3, "toothbrush");
+
+    assertEquals(16, batch.boxes().length);
+    assertEquals(4, batch.scores().length);
+    assertEquals(0.9f, batch.scores()[0], 0);
+    assertEquals(3, batch.classes()[0]);
+    assertEquals("toothbrush", batch.labels()[0]);
+
+    // Transforming the boxes in place shows through the getters.
+    final float[] boxes = batch.boxes();
+    for (int i = 0; i < batch.size() * 4; ++i) {
+      boxes[i] *= 2;
+    }
+    assertEquals(20, batch.getLeft(0), 0);
+    assertEquals(160, batch.getBottom(0), 0);
+  }
+
+  @Test
+  public void retainsScoresAtLeastInOrder() {
+    final DetectionBatch batch = new DetectionBatch(5);
+    batch.add(0, 0, 1, 1, 0.2f, 1, "a");
+    batch.add(1, 1, 2, 2, 0.8f, 2, "b");
+    batch.add(2, 2, 3, 3, 0.5f, 3, "c");
+    batch.add(3, 3, 4, 4, 0.1f, 4, "d");
+    batch.add(4, 4, 5, 5, 0.5f, 5, "e");
+
+    batch.retainScoresAtLeast(0.5f);
+
+    assertEquals(3, batch.size());
+    final String[] labels = {"b", "c", "e"};
+    final int[] left = {1, 2, 4};
+    for (int i = 0; i < labels.length; ++i) {
+      assertEquals(labels[i], batch.getLabel(i));
+      assertEquals(left[i], batch.getLeft(i), 0);
+      assertEquals(left[i] + 1, batch.getBottom(i), 0);
+      assertEquals(left[i] + 1, batch.getClassIndex(i));
+    }
+    // Dropped entries do not keep their labels alive.
+    assertNull(batch.labels()[3]);
+    assertNull(batch.labels()[4]);
+  }
+
+  @Test
+  public void retainsNothingAboveAllScores() {
+    final DetectionBatch batch = new DetectionBatch(2);
+    batch.add(0, 0, 1, 1, 0.2f, 1, "a");
+    batch.add(0, 0, 1, 1, 0.3f, 1, "a");
+    batch.retainScoresAtLeast(0.9f);
+    assertEquals(0, batch.size());
+    assertEquals(0, batch.getBestScore("a"), 0);
+  }
+
+  @Test
+  public void findsBestScorePerLabel() {
+    final DetectionBatch batch = new DetectionBatch(4);
+    batch.add(0, 0, 1, 1, 0.4f, 1, "toothbrush");
+    batch.add(0, 0, 1, 1, 0.9f, 2, "cup");
+    batch.add(0, 0, 1, 1, 0.7f, 1, "toothbrush");
+
+    assertEquals(0.7f, batch.getBestScore("toothbrush"), 0);
+    assertEquals(0.9f, batch.getBestScore("cup"), 0);
+    assertEquals(0, batch.getBestScore("fork"), 0);
+
+    // Only the valid entries count.
+    batch.clear();
+    assertEquals(0, batch.getBestScore("cup"), 0);
+  }
+
+  @Test
+  public void sortsBoxCorners() {
+    final DetectionBatch batch = new DetectionBatch(2);
+    batch.add(40, 80, 10, 20, 1, 1, "flipped");
+    batch.add(10, 20, 40, 80, 1, 1, "upright");
+    batch.sortBoxCorners();
+
+    for (int i = 0; i < batch.size(); ++i) {
+      assertEquals(10, batch.getLeft(i), 0);
+      assertEquals(20, batch.getTop(i), 0);
+      assertEquals(40, batch.getRight(i), 0);
+      assertEquals(80, batch.getBottom(i), 0);
+    }
+  }
+}
@@ -0,0 +1,177 @@
+/* Copyright 2019 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow.lite.examples.detection.tflite;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import org.junit.Test;
+
+/** Checks each PixelPacker kernel against the channel encoding it documents. */
+public class PixelPackerTest {
+  // Every channel value once: pixel i holds i, 255 - i and i ^ 0x5A as red, green and blue.
+  private static final int[] PIXELS = new int[256];
+
+  static {
+    for (int i = 0; i < PIXELS.length; ++i) {
+      PIXELS[i] = 0xFF000000 | (i << 16) | ((255 - i) << 8) | (i ^ 0x5A);
+    }
+  }
+
+  @Test
+  public void packsUint8WithQuantization() {
+    // The common SSD input: mean and std 128, scale 1/128, zero point 128 is the identity.
+    final ByteBuffer out = pack(PixelPacker.create("UINT8", 1 / 128f, 128, 128, 128));
+    for (int i = 0; i < PIXELS.length; ++i) {
+      assertEquals(i, out.get() & 0xFF);
+      assertEquals(255 - i, out.get() & 0xFF);
+      assertEquals(i ^ 0x5A, out.get() & 0xFF);
+    }
+  }
+
+  @Test
+  public void packsUint8WithoutQuantizationAsIs() {
+    final ByteBuffer out = pack(PixelPacker.create("UINT8", 0, 0, 128, 128));
+    for (int i = 0; i < PIXELS.length; ++i) {
+      assertEquals(i, out.get() & 0xFF);
+      assertEquals(255 - i, out.get() & 0xFF);
+      assertEquals(i ^ 0x5A, out.get() & 0xFF);
+    }
+  }
+
+  @Test
+  public void clampsUint8ToRange() {
+    // Channel value v maps to 2 * v, which saturates from 128 on.
+    final PixelPacker packer = PixelPacker.create("UINT8", 0.5f, 0, 0, 1);
+    final ByteBuffer out = pack(packer);
+    for (int i = 0; i < PIXELS.length; ++i) {
+      assertEquals(Math.min(2 * i, 255), out.get() & 0xFF);
+      out.position(out.position() + 2);
+    }
+  }
+
+  @Test
+  public void packsInt8WithQuantization() {
+    final ByteBuffer out = pack(PixelPacker.create("INT8", 1 / 128f, 0, 128, 128));
+    for (int i = 0; i < PIXELS.length; ++i) {
+      assertEquals(i - 128, out.get());
+      assertEquals(127 - i, out.get());
+      assertEquals((i ^ 0x5A) - 128, out.get());
+    }
+  }
+
+  @Test
+  public void packsInt8WithoutQuantizationShifted() {
+    final ByteBuffer out = pack(PixelPacker.create("INT8", 0, 0, 128, 128));
+    for (int i = 0; i < PIXELS.length; ++i) {
+      assertEquals(i - 128, out.get());
+      assertEquals(127 - i, out.get());
+      assertEquals((i ^ 0x5A) - 128, out.get());
+    }
+  }
+
+  @Test
+  public void packsFloat32Normalized() {
+    final ByteBuffer out = pack(PixelPacker.create("FLOAT32", 0, 0, 127.5f, 127.5f));
+    for (int i = 0; i < PIXELS.length; ++i) {
+      assertEquals((i - 127.5f) / 127.5f, out.getFloat(), 0);
+      assertEquals((255 - i - 127.5f) / 127.5f, out.getFloat(), 0);
+      assertEquals(((i ^ 0x5A) - 127.5f) / 127.5f, out.getFloat(), 0);
+    }
+  }
+
+  @Test
+  public void packsFloat16Normalized() {
+    final ByteBuffer out = pack(PixelPacker.create("FLOAT16", 0, 0, 127.5f, 127.5f));
+    for (int i = 0; i < PIXELS.length; ++i) {
+      assertHalf((i - 127.5f) / 127.5f, out.getShort());
+      assertHalf((255 - i - 127.5f) / 127.5f, out.getShort());
+      assertHalf(((i ^ 0x5A) - 127.5f) / 127.5f, out.getShort());
+    }
+  }
+
+  @Test
+  public void convertsToHalf() {
+    assertEquals(0x0000, PixelPacker.toHalf(0f) & 0xFFFF);
+    assertEquals(0x8000, PixelPacker.toHalf(-0f) & 0xFFFF);
+    assertEquals(0x3C00, PixelPacker.toHalf(1f) & 0xFFFF);
+    assertEquals(0xC000, PixelPacker.toHalf(-2f) & 0xFFFF);
+    assertEquals(0x3555, PixelPacker.toHalf(1 / 3f) & 0xFFFF);
+    // Largest finite half, and the first value that rounds to infinity.
+    assertEquals(0x7BFF, PixelPacker.toHalf(65504f) & 0xFFFF);
+    assertEquals(0x7C00, PixelPacker.toHalf(65520f) & 0xFFFF);
+    assertEquals(0xFC00, PixelPacker.toHalf(Float.NEGATIVE_INFINITY) & 0xFFFF);
+    assertEquals(0x7E00, PixelPacker.toHalf(Float.NaN) & 0xFFFF);
+    // Smallest normal and subnormal halves; half of the smallest subnormal rounds to even zero.
+    assertEquals(0x0400, PixelPacker.toHalf(0x1p-14f) & 0xFFFF);
+    assertEquals(0x0001, PixelPacker.toHalf(0x1p-24f) & 0xFFFF);
+    assertEquals(0x0000, PixelPacker.toHalf(0x1p-25f) & 0xFFFF);
+    assertEquals(0x0002, PixelPacker.toHalf(0x1.8p-24f) & 0xFFFF);
+    // Ties between two halves round to the even one.
+    assertEquals(0x3C00, PixelPacker.toHalf(1 + 0x1p-11f) & 0xFFFF);
+    assertEquals(0x3C02, PixelPacker.toHalf(1 + 0x3p-11f) & 0xFFFF);
+    // Rounding up may carry into the exponent.
+    assertEquals(0x4000, PixelPacker.toHalf(2 - 0x1p-12f) & 0xFFFF);
+  }
+
+  @Test
+  public void reportsBytesPerChannel() {
+    assertEquals(1, PixelPacker.create("UINT8", 0, 0, 0, 1).getBytesPerChannel());
+    assertEquals(1, PixelPacker.create("INT8", 0, 0, 0, 1).getBytesPerChannel());
+    assertEquals(2, PixelPacker.create("FLOAT16", 0, 0, 0, 1).getBytesPerChannel());
+    assertEquals(4, PixelPacker.create("FLOAT32", 0, 0, 0, 1).getBytesPerChannel());
+  }
+
+  @Test
+  public void rejectsUnsupportedType() {
+    try {
+      PixelPacker.create("INT64", 0, 0, 0, 1);
+      fail("INT64 input accepted");
+    } catch (final IllegalArgumentException expected) {
+      assertTrue(expected.getMessage().contains("INT64"));
+    }
+  }
+
+  private static ByteBuffer pack(final PixelPacker packer) {
+    final ByteBuffer out =
+        ByteBuffer.allocateDirect(PIXELS.length * 3 * packer.getBytesPerChannel())
+            .order(ByteOrder.nativeOrder());
+    packer.pack(PIXELS, PIXELS.length, out);
+    assertEquals(out.capacity(), out.position());
+    out.flip();
+    return out;
+  }
+
+  /** Asserts that the half is the value rounded to the nearest half, i.e. within half an ulp. */
+  private static void assertHalf(final float expected, final short half) {
+    final float actual = toFloat(half);
+    final float ulp = Math.max(Math.ulp(expected) * (1 << 13), 0x1p-24f);
+    assertEquals(expected, actual, ulp / 2);
+  }
+
+  private static float toFloat(final short half) {
+    final int sign = (half & 0x8000) != 0 ? -1 : 1;
+    final int exponent = (half >>> 10) & 0x1F;
+    final int mantissa = half & 0x3FF;
+    if (exponent == 0) {
+      return sign * mantissa * 0x1p-24f;
+    }
+    return sign * (1 + mantissa / 1024f) * (float) Math.pow(2, exponent - 15);
+  }
+}
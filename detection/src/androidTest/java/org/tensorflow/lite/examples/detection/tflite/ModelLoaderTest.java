@@ -0,0 +1,94 @@
+/* Copyright 2019 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow.lite.examples.detection.tflite;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import android.content.res.AssetManager;
+import android.graphics.Bitmap;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Loads the bundled model from a compressed asset, which the apps never do because they store
+ * models uncompressed. The build copies it there, see copyCompressedModel in build.gradle.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ModelLoaderTest {
+  private static final String MODEL = "detect.tflite";
+  private static final String COMPRESSED_MODEL = "detect_compressed.model";
+  private static final String LABELS = "file:///android_asset/labelmap.txt";
+  private static final int INPUT_SIZE = 300;
+
+  private AssetManager assets;
+
+  @Before
+  public void setUp() {
+    assets = InstrumentationRegistry.getInstrumentation().getContext().getAssets();
+  }
+
+  @Test
+  public void streamsCompressedAssetInNativeOrder() throws IOException {
+    try {
+      assets.openFd(COMPRESSED_MODEL).close();
+      fail(COMPRESSED_MODEL + " is stored uncompressed");
+    } catch (final FileNotFoundException expected) {
+      // openFd() only works for uncompressed assets.
+    }
+
+    // The first load streams the asset, the second one comes from the cache.
+    final ByteBuffer streamed = ModelLoader.loadModel(assets, COMPRESSED_MODEL);
+    final ByteBuffer cached = ModelLoader.loadModel(assets, COMPRESSED_MODEL);
+    final ByteBuffer mapped = ModelLoader.loadModel(assets, MODEL);
+
+    for (final ByteBuffer buffer : new ByteBuffer[] {streamed, cached}) {
+      assertTrue(buffer.isDirect());
+      assertEquals(ByteOrder.nativeOrder(), buffer.order());
+      assertEquals(0, buffer.position());
+      assertEquals(mapped, buffer);
+    }
+  }
+
+  @Test
+  public void detectsWithCompressedModel() throws IOException {
+    final Bitmap bitmap = Bitmap.createBitmap(INPUT_SIZE, INPUT_SIZE, Bitmap.Config.ARGB_8888);
+    // Twice, so the second detector is built from the cached buffer.
+    for (int i = 0; i < 2; ++i) {
+      final Classifier detector =
+          TFLiteObjectDetectionAPIModel.create(
+              assets,
+              COMPRESSED_MODEL,
+              LABELS,
+              INPUT_SIZE,
+              TFLiteObjectDetectionAPIModel.DEFAULT_IMAGE_MEAN,
+              TFLiteObjectDetectionAPIModel.DEFAULT_IMAGE_STD);
+      try {
+        detector.detect(bitmap);
+      } finally {
+        detector.close();
+      }
+    }
+  }
+}
@@ -0,0 +1,682 @@
+/*
+ * Copyright 2019 The TensorFlow Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.tensorflow.lite.examples.detection;
+
+import android.Manifest;
+import android.app.Fragment;
+import android.content.pm.PackageManager;
+import android.hardware.Camera;
+import android.media.Image;
+import android.media.Image.Plane;
+import android.media.ImageReader;
+import android.media.ImageReader.OnImageAvailableListener;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Process;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.os.Trace;
+import androidx.appcompat.app.AppCompatActivity;
+import android.util.Log;
+import android.util.Size;
+import android.view.Surface;
+import android.view.View;
+import android.view.WindowManager;
+import android.widget.CompoundButton;
+import android.widget.Toast;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.tensorflow.lite.examples.detection.lib.R;
+import org.tensorflow.lite.examples.detection.replay.CaptureFormat;
+import org.tensorflow.lite.examples.detection.replay.FrameRecorder;
+import org.tensorflow.lite.examples.detection.replay.RecordedFrame;
+import org.tensorflow.lite.examples.detection.replay.ReplayDriver;
+
+
+
+public abstract class CameraActivity extends AppCompatActivity implements OnImageAvailableListener, Camera.PreviewCallback, CompoundButton.OnCheckedChangeListener, View.OnClickListener, ReplayDriver.FrameSink, ReplayDriver.Listener {
+
+  /** Path of a capture file to record every camera frame into. */
+  public static final String EXTRA_RECORD_PATH = "record_path";
+  /** Path of a capture file to replay instead of opening the camera. */
+  public static final String EXTRA_REPLAY_PATH = "replay_path";
+  /** Replay at the recorded frame rate instead of as fast as the detector allows. */
+  public static final String EXTRA_REPLAY_REAL_TIME = "replay_real_time";
+
+  private static final String TAG = "CameraActivity";
+  // Ask the camera for this much more than the detector handles, so a fresh frame is ready.
+  private static final float FPS_HEADROOM = 1.5f;
+  private static final long FPS_UPDATE_INTERVAL_MS = 2000;
+  private static final float FRAME_TIME_SMOOTHING = 0.1f;
+  // Reader buffers on top of the pipeline depth: one for acquireLatestImage() to swap in the
+  // newest frame, one to queue a frame while the pipeline is busy.
+  private static final int IMAGE_POOL_SLACK = 2;
+  // Inference tasks that may wait; the frame slot keeps at most one frame in flight anyway.
+  private static final int INFERENCE_QUEUE_CAPACITY = 4;
+  private static final int PERMISSIONS_REQUEST = 1;
+  private static final String PERMISSION_CAMERA = Manifest.permission.CAMERA;
+  protected int previewWidth = 0;
+  protected int previewHeight = 0;
+  private boolean debug = false;
+  private InferenceExecutor inferenceExecutor;
+  private boolean useCamera2API;
+  // Hands frames from the camera thread to the inference thread, one at a time.
+  protected final FrameSlot frameSlot = new FrameSlot();
+  private int[] rgbBytes = null;
+  // The frame being processed, and the contexts recycled between frames.
+  private FrameContext currentFrame;
+  private FrameContext.Pool framePool;
+  private int sensorRotation;
+  private volatile FrameRecorder frameRecorder;
+  private ReplayDriver replayDriver;
+  private CameraConnectionFragment cameraFragment;
+  // Moving average of the time the detector needs per frame.
+  private float averageFrameTimeMs;
+  private long lastFpsUpdateMs;
+  // Frames delivered by the camera, handed to processImage(), and discarded unprocessed.
+  private final AtomicLong framesProduced = new AtomicLong();
+  private final AtomicLong framesConsumed = new AtomicLong();
+  private final AtomicLong framesDropped = new AtomicLong();
+  // Frames left in the image reader because the pipeline was full.
+  private final AtomicInteger queuedImages = new AtomicInteger();
+  private volatile ImageReader queuedReader;
+  private volatile Handler imageHandler;
+  // Picks up the newest queued frame on the image thread once the pipeline has room again.
+  private final Runnable drainQueuedImage =
+      new Runnable() {
+        @Override
+        public void run() {
+          final ImageReader reader = queuedReader;
+          if (reader != null && queuedImages.get() > 0 && frameSlot.isFree()) {
+            queuedReader = null;
+            processLatestImage(reader);
+          }
+        }
+      };
+
+  @Override
+  protected void onCreate(final Bundle savedInstanceState) {
+
+    super.onCreate(null);
+    getWindow().addFlags(WindowManager.LayoutParams.FLAG_KEEP_SCREEN_ON);
+
+    setContentView(R.layout.activity_camera);
+    framePool = new FrameContext.Pool(getPipelineDepth());
+
+    final String replayPath = getIntent().getStringExtra(EXTRA_REPLAY_PATH);
+    if (replayPath != null) {
+      replayDriver =
+          new ReplayDriver(
+              new File(replayPath),
+              getIntent().getBooleanExtra(EXTRA_REPLAY_REAL_TIME, false),
+              this,
+              this);
+    } else if (hasPermission()) {
+      setFragment();
+    } else {
+      requestPermission();
+    }
+
+  }
+
+  protected int[] getRgbBytes() {
+    currentFrame.convertTo(rgbBytes, previewWidth, previewHeight);
+    return rgbBytes;
+  }
+
+
+
+
+  // process camera preview
+  @Override
+  public void onPreviewFrame(final byte[] bytes, final Camera camera) {
+    framesProduced.incrementAndGet();
+    if (!frameSlot.isFree()) {
+      framesDropped.incrementAndGet();
+      return;
+    }
+
+    try {
+      // Initialize the storage bitmaps once when the resolution is known.
+      if (rgbBytes == null) {
+        Camera.Size previewSize = camera.getParameters().getPreviewSize();
+        previewHeight = previewSize.height;
+        previewWidth = previewSize.width;
+        rgbBytes = new int[previewWidth * previewHeight];
+        sensorRotation = 90;
+        onPreviewSizeChosen(new Size(previewSize.width, previewSize.height), 90);
+      }
+    } catch (final Exception e) {
+
+      return;
+    }
+
+    if (frameRecorder != null) {
+      recordFrame(
+          System.nanoTime(),
+          CaptureFormat.FORMAT_NV21,
+          new ByteBuffer[] {ByteBuffer.wrap(bytes)},
+          new int[] {previewWidth},
+          new int[] {1});
+    }
+
+    final FrameContext frame = claimFrame();
+    if (frame == null) {
+      framesDropped.incrementAndGet();
+      return;
+    }
+    framesConsumed.incrementAndGet();
+    try {
+      frame.setPreviewFrame(bytes, camera);
+      processImage();
+    } catch (final Exception e) {
+      Log.e(TAG, "Could not process preview frame", e);
+    } finally {
+      releaseClaim(frame);
+    }
+  }
+
+
+
+  // process image
+  @Override
+  public void onImageAvailable(final ImageReader reader) {
+    // We need wait until we have some size from onPreviewSizeChosen
+    if (previewWidth == 0 || previewHeight == 0) {
+      return;
+    }
+    if (rgbBytes == null) {
+      rgbBytes = new int[previewWidth * previewHeight];
+    }
+
+    framesProduced.incrementAndGet();
+    final int queued = queuedImages.incrementAndGet();
+
+    // While the pipeline is full, leave the frame in the reader instead of acquiring and closing
+    // it. The newest one is picked up once the pipeline frees up, unless the pool is about to run
+    // dry, which would stall the camera. Recordings need every frame.
+    if (frameRecorder == null && !frameSlot.isFree() && queued < reader.getMaxImages() - 1) {
+      queuedReader = reader;
+      if (imageHandler == null || imageHandler.getLooper() != Looper.myLooper()) {
+        imageHandler = new Handler(Looper.myLooper());
+      }
+      return;
+    }
+    processLatestImage(reader);
+  }
+
+  private void processLatestImage(final ImageReader reader) {
+    Image image = null;
+    FrameContext frame = null;
+    boolean traced = false;
+    try {
+      image = reader.acquireLatestImage();
+      // acquireLatestImage() discarded every older frame.
+      final int queued = queuedImages.getAndSet(0);
+
+      if (image == null) {
+        return;
+      }
+      framesDropped.addAndGet(Math.max(queued - 1, 0));
+
+      if (frameRecorder != null) {
+        final Plane[] planes = image.getPlanes();
+        final ByteBuffer[] buffers = new ByteBuffer[planes.length];
+        final int[] rowStrides = new int[planes.length];
+        final int[] pixelStrides = new int[planes.length];
+        for (int i = 0; i < planes.length; ++i) {
+          buffers[i] = planes[i].getBuffer();
+          rowStrides[i] = planes[i].getRowStride();
+          pixelStrides[i] = planes[i].getPixelStride();
+        }
+        recordFrame(
+            image.getTimestamp(),
+            CaptureFormat.FORMAT_YUV_420_888,
+            buffers,
+            rowStrides,
+            pixelStrides);
+      }
+
+      frame = claimFrame();
+      if (frame == null) {
+        framesDropped.incrementAndGet();
+        return;
+      }
+
+      framesConsumed.incrementAndGet();
+      Trace.beginSection("imageAvailable");
+      traced = true;
+      // The planes are converted in place; the image is closed when the frame is released.
+      frame.setImage(image);
+      image = null;
+      processImage();
+    } catch (final Exception e) {
+      Log.e(TAG, "Could not process camera image", e);
+    } finally {
+      if (frame != null) {
+        releaseClaim(frame);
+      }
+      if (image != null) {
+        image.close();
+      }
+      if (traced) {
+        Trace.endSection();
+      }
+    }
+  }
+
+  // replay a recorded frame through the same path as a camera frame
+  @Override
+  public void onReplayFrame(final RecordedFrame frame) {
+    if (rgbBytes == null) {
+      startReplayPreview(frame);
+    }
+
+    final FrameContext context = claimFrame();
+    if (context == null) {
+      // Cannot happen while the driver waits for each frame; don't leave it waiting forever.
+      replayDriver.onFrameProcessed(false);
+      return;
+    }
+    try {
+      context.setRecordedFrame(frame);
+      processImage();
+    } catch (final Exception e) {
+      Log.e(TAG, "Could not process replayed frame", e);
+    } finally {
+      // A frame that never reached inference is not reported by it; the driver waits for it.
+      if (releaseClaim(context)) {
+        replayDriver.onFrameProcessed(false);
+      }
+    }
+  }
+
+  // size the pipeline for the recording, on the UI thread like the camera does
+  private void startReplayPreview(final RecordedFrame frame) {
+    final CountDownLatch started = new CountDownLatch(1);
+    runOnUiThread(
+        new Runnable() {
+          @Override
+          public void run() {
+            previewWidth = frame.width;
+            previewHeight = frame.height;
+            onPreviewSizeChosen(new Size(frame.width, frame.height), frame.rotation);
+            started.countDown();
+          }
+        });
+    try {
+      started.await();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    rgbBytes = new int[previewWidth * previewHeight];
+  }
+
+  @Override
+  public void onReplayFinished(final ReplayDriver driver) {
+    Log.i(TAG, "Replay finished: " + driver);
+    runOnUiThread(
+        new Runnable() {
+          @Override
+          public void run() {
+            finish();
+          }
+        });
+  }
+
+  protected boolean isReplaying() {
+    return replayDriver != null;
+  }
+
+  /**
+   * Called by subclasses once a frame has been fully processed, so a replay can send the next one
+   * and the camera frame rate can follow the detector.
+   *
+   * @param detected Whether the target object was found in the frame.
+   * @param processingTimeMs Time the frame kept the detector busy.
+   */
+  protected void onFrameProcessed(final boolean detected, final long processingTimeMs) {
+    if (replayDriver != null) {
+      replayDriver.onFrameProcessed(detected);
+      return;
+    }
+    requestQueuedImage();
+
+    averageFrameTimeMs =
+        averageFrameTimeMs == 0
+            ? processingTimeMs
+            : averageFrameTimeMs + FRAME_TIME_SMOOTHING * (processingTimeMs - averageFrameTimeMs);
+    final long now = SystemClock.uptimeMillis();
+    final CameraConnectionFragment fragment = cameraFragment;
+    if (fragment != null
+        && averageFrameTimeMs > 0
+        && now - lastFpsUpdateMs > FPS_UPDATE_INTERVAL_MS) {
+      lastFpsUpdateMs = now;
+      fragment.setTargetFps(FPS_HEADROOM * 1000 / averageFrameTimeMs);
+    }
+  }
+
+  private void recordFrame(
+      final long timestampNs,
+      final int format,
+      final ByteBuffer[] planes,
+      final int[] rowStrides,
+      final int[] pixelStrides) {
+    final FrameRecorder recorder = frameRecorder;
+    if (recorder == null) {
+      return;
+    }
+    try {
+      recorder.writeFrame(
+          timestampNs,
+          format,
+          previewWidth,
+          previewHeight,
+          sensorRotation,
+          planes,
+          rowStrides,
+          pixelStrides);
+    } catch (final IOException e) {
+      Log.e(TAG, "Frame recording failed", e);
+      closeRecorder();
+    }
+  }
+
+  private synchronized void closeRecorder() {
+    if (frameRecorder != null) {
+      try {
+        frameRecorder.close();
+      } catch (final IOException e) {
+        Log.e(TAG, "Could not close frame recording", e);
+      }
+      frameRecorder = null;
+    }
+  }
+
+
+  @Override
+  public synchronized void onStart() {
+    //LOGGER.d("onStart " + this);
+    super.onStart();
+  }
+
+  @Override
+  public synchronized void onResume() {
+    super.onResume();
+
+    // A frame published before the last pause was never consumed.
+    frameSlot.reset();
+    inferenceExecutor =
+        new InferenceExecutor(
+            "inference", getInferenceThreadPriority(), INFERENCE_QUEUE_CAPACITY);
+
+    final String recordPath = getIntent().getStringExtra(EXTRA_RECORD_PATH);
+    if (recordPath != null && replayDriver == null) {
+      try {
+        frameRecorder = new FrameRecorder(new File(recordPath));
+      } catch (final IOException e) {
+        Log.e(TAG, "Could not start frame recording", e);
+      }
+    }
+    if (replayDriver != null) {
+      replayDriver.start();
+    }
+  }
+
+  @Override
+  public synchronized void onPause() {
+    if (replayDriver != null) {
+      replayDriver.stop();
+    }
+    closeRecorder();
+    Log.i(TAG, "Frames " + getFrameStats());
+
+    inferenceExecutor.quitSafely();
+    try {
+      inferenceExecutor.join();
+      Log.i(TAG, "Inference " + inferenceExecutor.getStats());
+      inferenceExecutor = null;
+    } catch (final InterruptedException e) {
+
+    }
+
+    super.onPause();
+  }
+
+  @Override
+  public synchronized void onStop() {
+    super.onStop();
+  }
+
+  @Override
+  public synchronized void onDestroy() {
+    super.onDestroy();
+  }
+
+  protected synchronized void runInBackground(final Runnable r) {
+    if (inferenceExecutor != null && !inferenceExecutor.execute(r)) {
+      Log.w(TAG, "Inference queue full, task dropped");
+    }
+  }
+
+  /**
+   * Runs a detector configuration change on the inference thread before any queued inference.
+   * A change with the same key that has not run yet is replaced.
+   */
+  protected synchronized void runConfigInBackground(final Object key, final Runnable r) {
+    if (inferenceExecutor != null) {
+      inferenceExecutor.executeConfig(key, r);
+    }
+  }
+
+  /**
+   * Returns the priority of the inference thread. Above normal apps, so frames keep flowing, but
+   * below the UI and audio threads of the ringing alarm.
+   */
+  protected int getInferenceThreadPriority() {
+    return Process.THREAD_PRIORITY_FOREGROUND;
+  }
+
+
+  // check permission and if not, request
+  @Override
+  public void onRequestPermissionsResult(final int requestCode, final String[] permissions, final int[] grantResults) {
+    if (requestCode == PERMISSIONS_REQUEST) {
+      if (grantResults.length > 0
+          && grantResults[0] == PackageManager.PERMISSION_GRANTED
+          && grantResults[1] == PackageManager.PERMISSION_GRANTED) {
+        setFragment();
+      } else {
+        requestPermission();
+      }
+    }
+  }
+
+  // check about permission
+  private boolean hasPermission() {
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+      return checkSelfPermission(PERMISSION_CAMERA) == PackageManager.PERMISSION_GRANTED;
+    } else {
+      return true;
+    }
+  }
+
+  // request the permission
+  private void requestPermission() {
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+      if (shouldShowRequestPermissionRationale(PERMISSION_CAMERA)) {
+        Toast.makeText(
+                CameraActivity.this,
+                "Camera permission is required for this demo",
+                Toast.LENGTH_LONG)
+            .show();
+      }
+      requestPermissions(new String[] {PERMISSION_CAMERA}, PERMISSIONS_REQUEST);
+    }
+  }
+
+  // get the camera ID which is available
+  private String chooseCamera() {
+    final String cameraId = CameraSelector.getCameraId(this);
+    useCamera2API = CameraSelector.useCamera2API(this);
+    return cameraId;
+  }
+
+  // set Camera with camera ID
+  protected void setFragment() {
+    String cameraId = chooseCamera();
+
+    Fragment fragment;
+
+      CameraConnectionFragment camera2Fragment =
+              CameraConnectionFragment.newInstance(
+                      new CameraConnectionFragment.ConnectionCallback() {
+                        @Override
+                        public void onPreviewSizeChosen(final Size size, final int rotation) {
+                          previewHeight = size.getHeight();
+                          previewWidth = size.getWidth();
+                          sensorRotation = rotation;
+                          CameraActivity.this.onPreviewSizeChosen(size, rotation);
+                        }
+                      },
+                      this,
+                      getLayoutId(),
+                      getDesiredPreviewFrameSize());
+
+      camera2Fragment.setCamera(cameraId);
+      camera2Fragment.setModelInputSize(getModelInputSize());
+      camera2Fragment.setMaxImages(getPipelineDepth() + IMAGE_POOL_SLACK);
+      cameraFragment = camera2Fragment;
+      fragment = camera2Fragment;
+
+
+    getFragmentManager().beginTransaction().replace(R.id.container, fragment).commit();
+  }
+
+
+
+  /**
+   * Hands the camera buffer of the current frame back once its pixels have been read. The frame
+   * slot stays claimed until the subclass publishes or aborts the frame.
+   */
+  protected void readyForNextImage() {
+    final FrameContext frame = currentFrame;
+    if (frame != null) {
+      currentFrame = null;
+      frame.release();
+    }
+  }
+
+  /** Returns the number of camera images the pipeline keeps open at the same time. */
+  protected int getPipelineDepth() {
+    return 1;
+  }
+
+  /** Returns the frame counters since the activity was created. */
+  protected String getFrameStats() {
+    return "produced "
+        + framesProduced.get()
+        + ", consumed "
+        + framesConsumed.get()
+        + ", dropped "
+        + framesDropped.get();
+  }
+
+  /**
+   * Claims the frame slot for a new frame, or returns null if the pipeline is busy. On success
+   * processImage() owns the slot and must commit or abort it.
+   */
+  private FrameContext claimFrame() {
+    if (!frameSlot.tryBeginFill()) {
+      return null;
+    }
+    final FrameContext frame = framePool.obtain();
+    if (frame == null) {
+      frameSlot.abortFill();
+      return null;
+    }
+    currentFrame = frame;
+    return frame;
+  }
+
+  /**
+   * Gives back whatever processImage() left of a claimed frame, e.g. because it threw: aborts the
+   * slot if it is still being filled and releases the frame if its buffer was not handed back.
+   * Does nothing after a frame went through normally. Returns whether the frame was never
+   * published to the inference thread.
+   */
+  private boolean releaseClaim(final FrameContext frame) {
+    // Only this thread moves the slot out of FILLING, so it cannot change under us.
+    final boolean unpublished = frameSlot.getState() == FrameSlot.FILLING;
+    if (unpublished) {
+      frameSlot.abortFill();
+    }
+    if (currentFrame == frame) {
+      currentFrame = null;
+      frame.release();
+    }
+    return unpublished;
+  }
+
+  private void requestQueuedImage() {
+    final Handler handler = imageHandler;
+    if (handler != null && queuedImages.get() > 0) {
+      handler.post(drainQueuedImage);
+    }
+  }
+
+  // change the rotation of the preview
+  protected int getScreenOrientation() {
+    switch (getWindowManager().getDefaultDisplay().getRotation()) {
+      case Surface.ROTATION_270:
+        return 270;
+      case Surface.ROTATION_180:
+        return 180;
+      case Surface.ROTATION_90:
+        return 90;
+      default:
+        return 0;
+    }
+  }
+
+
+
+  /**
+   * Processes the frame in the claimed {@link #frameSlot}. Must end with {@link
+   * FrameSlot#commitFill()} once the frame is handed to the inference thread, or {@link
+   * FrameSlot#abortFill()} if it is skipped.
+   */
+  protected abstract void processImage();
+
+  protected abstract void onPreviewSizeChosen(final Size size, final int rotation);
+
+  protected abstract int getLayoutId();
+
+  protected abstract Size getDesiredPreviewFrameSize();
+
+  /** Returns the side of the square model input frames are scaled to. */
+  protected abstract int getModelInputSize();
+
+  protected abstract void setNumThreads(int numThreads);
+
+  protected abstract void setUseNNAPI(boolean isChecked);
+}
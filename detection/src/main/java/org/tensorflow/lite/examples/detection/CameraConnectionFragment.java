@@ -43,6 +43,7 @@ import android.media.ImageReader.OnImageAvailableListener;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.HandlerThread;
+import android.util.Range;
 import android.util.Size;
 import android.util.SparseIntArray;
 import android.view.LayoutInflater;
@@ -59,6 +60,7 @@ import java.util.List;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import org.tensorflow.lite.examples.detection.customview.AutoFitTextureView;
+import org.tensorflow.lite.examples.detection.lib.R;
 
 @SuppressLint("ValidFragment")
 public class CameraConnectionFragment extends Fragment {
@@ -114,10 +116,24 @@ public class CameraConnectionFragment extends Fragment {
   private CameraCaptureSession captureSession;
   /** A reference to the opened {@link CameraDevice}. */
   private CameraDevice cameraDevice;
+  /** Whether the preview surface exists; the camera is opened without waiting for it. */
+  private volatile boolean surfaceReady;
+  /** Whether {@link #createCameraPreviewSession()} ran for the current camera device. */
+  private boolean sessionStarted;
   /** The rotation in degrees of the camera sensor from the display. */
   private Integer sensorOrientation;
   /** The {@link Size} of camera preview. */
   private Size previewSize;
+  /** The {@link Size} of the frames handed to the detector, possibly smaller than the preview. */
+  private Size analysisSize;
+  /** Side in pixels of the square model input the analysis frames are scaled down to. */
+  private int modelInputSize;
+  /** Frame rate ranges the auto-exposure routine supports. */
+  private Range<Integer>[] fpsRanges;
+  /** The frame rate range currently requested, or null for the camera default. */
+  private Range<Integer> fpsRange;
+  /** Number of buffers in the {@link #previewReader} pool. */
+  private int maxImages = 2;
   /** An additional thread for running tasks that shouldn't block the UI. */
   private HandlerThread backgroundThread;
   /** A {@link Handler} for running tasks in the background. */
@@ -136,7 +152,8 @@ public class CameraConnectionFragment extends Fragment {
           // This method is called when the camera is opened.  We start camera preview here.
           cameraOpenCloseLock.release();
           cameraDevice = cd;
-          createCameraPreviewSession();
+          sessionStarted = false;
+          startSessionIfReady();
         }
 
         @Override
@@ -166,7 +183,11 @@ public class CameraConnectionFragment extends Fragment {
         @Override
         public void onSurfaceTextureAvailable(
             final SurfaceTexture texture, final int width, final int height) {
-          openCamera(width, height);
+          configureTransform(width, height);
+          surfaceReady = true;
+          if (backgroundHandler != null) {
+            backgroundHandler.post(startSessionIfReady);
+          }
         }
 
         @Override
@@ -177,6 +198,7 @@ public class CameraConnectionFragment extends Fragment {
 
         @Override
         public boolean onSurfaceTextureDestroyed(final SurfaceTexture texture) {
+          surfaceReady = false;
           return true;
         }
 
@@ -184,6 +206,14 @@ public class CameraConnectionFragment extends Fragment {
         public void onSurfaceTextureUpdated(final SurfaceTexture texture) {}
       };
 
+  private final Runnable startSessionIfReady =
+      new Runnable() {
+        @Override
+        public void run() {
+          startSessionIfReady();
+        }
+      };
+
   private CameraConnectionFragment(
       final ConnectionCallback connectionCallback,
       final OnImageAvailableListener imageListener,
@@ -287,14 +317,15 @@ public class CameraConnectionFragment extends Fragment {
     super.onResume();
     startBackgroundThread();
 
+    // Opening the camera takes a few hundred milliseconds, so it runs while the view is still
+    // being laid out. The preview session starts once both the camera and the surface are ready.
     // When the screen is turned off and turned back on, the SurfaceTexture is already
-    // available, and "onSurfaceTextureAvailable" will not be called. In that case, we can open
-    // a camera and start preview from here (otherwise, we wait until the surface is ready in
-    // the SurfaceTextureListener).
-    if (textureView.isAvailable()) {
-      openCamera(textureView.getWidth(), textureView.getHeight());
-    } else {
-      textureView.setSurfaceTextureListener(surfaceTextureListener);
+    // available, and "onSurfaceTextureAvailable" will not be called.
+    surfaceReady = textureView.isAvailable();
+    textureView.setSurfaceTextureListener(surfaceTextureListener);
+    openCamera();
+    if (surfaceReady) {
+      configureTransform(textureView.getWidth(), textureView.getHeight());
     }
   }
 
@@ -309,12 +340,126 @@ public class CameraConnectionFragment extends Fragment {
     this.cameraId = cameraId;
   }
 
+  /**
+   * Sets the side of the square model input, so the frames handed to the detector can be the
+   * smallest the camera offers that still cover it. Must be called before the camera is opened.
+   */
+  public void setModelInputSize(final int modelInputSize) {
+    this.modelInputSize = modelInputSize;
+  }
+
+  /**
+   * Sets how many frames the image reader can hold. Must be at least one more than the number of
+   * images the listener keeps open, since acquireLatestImage() needs a free slot to swap in the
+   * newest frame. Must be called before the camera is opened.
+   */
+  public void setMaxImages(final int maxImages) {
+    this.maxImages = Math.max(maxImages, 2);
+  }
+
+  /**
+   * Asks the camera for the slowest supported frame rate range that still delivers at least the
+   * given rate, so it does not produce frames the detector would drop. Safe to call from any
+   * thread; the repeating request is only updated when the chosen range changes.
+   */
+  public void setTargetFps(final float fps) {
+    final Handler handler = backgroundHandler;
+    if (handler == null) {
+      return;
+    }
+    handler.post(
+        new Runnable() {
+          @Override
+          public void run() {
+            updateFpsRange(fps);
+          }
+        });
+  }
+
+  private void updateFpsRange(final float fps) {
+    if (fpsRanges == null || !cameraOpenCloseLock.tryAcquire()) {
+      return;
+    }
+    try {
+      final Range<Integer> range = chooseFpsRange(fpsRanges, (int) Math.ceil(fps));
+      if (range.equals(fpsRange) || captureSession == null || previewRequestBuilder == null) {
+        return;
+      }
+      fpsRange = range;
+      previewRequestBuilder.set(CaptureRequest.CONTROL_AE_TARGET_FPS_RANGE, range);
+      previewRequest = previewRequestBuilder.build();
+      captureSession.setRepeatingRequest(previewRequest, captureCallback, backgroundHandler);
+    } catch (final CameraAccessException | IllegalStateException e) {
+      // The session is being closed.
+    } finally {
+      cameraOpenCloseLock.release();
+    }
+  }
+
+  /**
+   * Returns the range with the lowest upper bound that still reaches {@code fps}, preferring a low
+   * lower bound so auto-exposure keeps room in dim light, or the fastest range if none reaches it.
+   */
+  protected static Range<Integer> chooseFpsRange(final Range<Integer>[] ranges, final int fps) {
+    Range<Integer> best = null;
+    Range<Integer> fastest = ranges[0];
+    for (final Range<Integer> range : ranges) {
+      if (range.getUpper() > fastest.getUpper()) {
+        fastest = range;
+      }
+      if (range.getUpper() < fps) {
+        continue;
+      }
+      if (best == null
+          || range.getUpper() < best.getUpper()
+          || (range.getUpper().equals(best.getUpper()) && range.getLower() < best.getLower())) {
+        best = range;
+      }
+    }
+    return best != null ? best : fastest;
+  }
+
+  /**
+   * Chooses the smallest YUV output size whose shorter side covers the model input, preferring the
+   * aspect ratio of the preview so the detector sees what the user sees.
+   *
+   * @param choices The sizes the camera supports for YUV_420_888
+   * @param previewSize The size chosen for the preview
+   * @param modelInputSize Side of the square model input, or 0 to use the preview size
+   */
+  protected static Size chooseAnalysisSize(
+      final Size[] choices, final Size previewSize, final int modelInputSize) {
+    if (modelInputSize <= 0 || choices == null) {
+      return previewSize;
+    }
+    Size sameAspect = null;
+    Size any = null;
+    final CompareSizesByArea byArea = new CompareSizesByArea();
+    for (final Size option : choices) {
+      if (Math.min(option.getWidth(), option.getHeight()) < modelInputSize) {
+        continue;
+      }
+      if (any == null || byArea.compare(option, any) < 0) {
+        any = option;
+      }
+      final boolean aspectMatches =
+          (long) option.getWidth() * previewSize.getHeight()
+              == (long) option.getHeight() * previewSize.getWidth();
+      if (aspectMatches && (sameAspect == null || byArea.compare(option, sameAspect) < 0)) {
+        sameAspect = option;
+      }
+    }
+    if (sameAspect != null) {
+      return sameAspect;
+    }
+    return any != null ? any : previewSize;
+  }
+
   /** Sets up member variables related to camera. */
   private void setUpCameraOutputs() {
-    final Activity activity = getActivity();
-    final CameraManager manager = (CameraManager) activity.getSystemService(Context.CAMERA_SERVICE);
+    final CameraCharacteristics characteristics =
+        CameraSelector.getCharacteristics(getActivity(), cameraId);
     try {
-      final CameraCharacteristics characteristics = manager.getCameraCharacteristics(cameraId);
 
       final StreamConfigurationMap map =
           characteristics.get(CameraCharacteristics.SCALER_STREAM_CONFIGURATION_MAP);
@@ -329,6 +474,10 @@ public class CameraConnectionFragment extends Fragment {
               map.getOutputSizes(SurfaceTexture.class),
               inputSize.getWidth(),
               inputSize.getHeight());
+      analysisSize =
+          chooseAnalysisSize(
+              map.getOutputSizes(ImageFormat.YUV_420_888), previewSize, modelInputSize);
+      fpsRanges = characteristics.get(CameraCharacteristics.CONTROL_AE_AVAILABLE_TARGET_FPS_RANGES);
 
       // We fit the aspect ratio of TextureView to the size of preview we picked.
       final int orientation = getResources().getConfiguration().orientation;
@@ -337,8 +486,6 @@ public class CameraConnectionFragment extends Fragment {
       } else {
         textureView.setAspectRatio(previewSize.getHeight(), previewSize.getWidth());
       }
-    } catch (final CameraAccessException e) {
-
     } catch (final NullPointerException e) {
       // Currently an NPE is thrown when the Camera2API is used but not supported on the
       // device this code runs.
@@ -349,13 +496,12 @@ public class CameraConnectionFragment extends Fragment {
       throw new RuntimeException(getString(R.string.camera_error));
     }
 
-    cameraConnectionCallback.onPreviewSizeChosen(previewSize, sensorOrientation);
+    cameraConnectionCallback.onPreviewSizeChosen(analysisSize, sensorOrientation);
   }
 
   /** Opens the camera specified by {@link CameraConnectionFragment#cameraId}. */
-  private void openCamera(final int width, final int height) {
+  private void openCamera() {
     setUpCameraOutputs();
-    configureTransform(width, height);
     final Activity activity = getActivity();
     final CameraManager manager = (CameraManager) activity.getSystemService(Context.CAMERA_SERVICE);
     try {
@@ -370,6 +516,18 @@ public class CameraConnectionFragment extends Fragment {
     }
   }
 
+  /**
+   * Starts the preview once the camera is open and the surface exists, whichever comes last. Runs
+   * on the background thread.
+   */
+  private void startSessionIfReady() {
+    if (cameraDevice == null || !surfaceReady || sessionStarted) {
+      return;
+    }
+    sessionStarted = true;
+    createCameraPreviewSession();
+  }
+
   /** Closes the current {@link CameraDevice}. */
   private void closeCamera() {
     try {
@@ -428,10 +586,13 @@ public class CameraConnectionFragment extends Fragment {
       previewRequestBuilder = cameraDevice.createCaptureRequest(CameraDevice.TEMPLATE_PREVIEW);
       previewRequestBuilder.addTarget(surface);
 
-      // Create the reader for the preview frames.
+      // Create the reader for the detector frames, which may be smaller than the preview.
       previewReader =
           ImageReader.newInstance(
-              previewSize.getWidth(), previewSize.getHeight(), ImageFormat.YUV_420_888, 2);
+              analysisSize.getWidth(),
+              analysisSize.getHeight(),
+              ImageFormat.YUV_420_888,
+              maxImages);
 
       previewReader.setOnImageAvailableListener(imageListener, backgroundHandler);
       previewRequestBuilder.addTarget(previewReader.getSurface());
@@ -458,6 +619,10 @@ public class CameraConnectionFragment extends Fragment {
                 // Flash is automatically enabled when necessary.
                 previewRequestBuilder.set(
                     CaptureRequest.CONTROL_AE_MODE, CaptureRequest.CONTROL_AE_MODE_ON_AUTO_FLASH);
+                // Keep the frame rate negotiated for the detector across restarts.
+                if (fpsRange != null) {
+                  previewRequestBuilder.set(CaptureRequest.CONTROL_AE_TARGET_FPS_RANGE, fpsRange);
+                }
 
                 // Finally, we start displaying the camera preview.
                 previewRequest = previewRequestBuilder.build();
@@ -514,8 +679,8 @@ public class CameraConnectionFragment extends Fragment {
   }
 
   /**
-   * Callback for Activities to use to initialize their data once the selected preview size is
-   * known.
+   * Callback for Activities to use to initialize their data once the size of the frames they will
+   * receive is known.
    */
   public interface ConnectionCallback {
     void onPreviewSizeChosen(Size size, int cameraRotation);
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2019 The TensorFlow Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.tensorflow.lite.examples.detection;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.hardware.camera2.CameraAccessException;
+import android.hardware.camera2.CameraCharacteristics;
+import android.hardware.camera2.CameraManager;
+import android.hardware.camera2.params.StreamConfigurationMap;
+import java.util.Arrays;
+
+/**
+ * Picks the camera to detect with and caches what it learns about it.
+ *
+ * <p>Finding the camera means reading the characteristics of every camera on the device, which
+ * takes a binder call each. The chosen id is kept in preferences, so later launches only check it
+ * still exists, and the characteristics of the chosen camera are kept for the life of the process.
+ */
+public final class CameraSelector {
+  private static final String PREFS_NAME = "camera_selector";
+  private static final String PREF_CAMERA_ID = "camera_id";
+  private static final String PREF_USE_CAMERA2 = "use_camera2";
+
+  private static String cachedCameraId;
+  private static CameraCharacteristics cachedCharacteristics;
+
+  private CameraSelector() {}
+
+  /** Looks the camera up on a background thread, e.g. while an alarm is ringing. */
+  public static void prewarm(final Context context) {
+    final Context appContext = context.getApplicationContext();
+    new Thread(
+            new Runnable() {
+              @Override
+              public void run() {
+                final String cameraId = getCameraId(appContext);
+                if (cameraId != null) {
+                  getCharacteristics(appContext, cameraId);
+                }
+              }
+            },
+            "camera-prewarm")
+        .start();
+  }
+
+  /** Returns the id of the first back or external camera, or null if there is none. */
+  public static String getCameraId(final Context context) {
+    final CameraManager manager =
+        (CameraManager) context.getSystemService(Context.CAMERA_SERVICE);
+    final SharedPreferences prefs = getPreferences(context);
+    try {
+      final String cachedId = prefs.getString(PREF_CAMERA_ID, null);
+      if (cachedId != null && Arrays.asList(manager.getCameraIdList()).contains(cachedId)) {
+        return cachedId;
+      }
+
+      for (final String cameraId : manager.getCameraIdList()) {
+        final CameraCharacteristics characteristics = manager.getCameraCharacteristics(cameraId);
+
+        // We don't use a front facing camera in this sample.
+        final Integer facing = characteristics.get(CameraCharacteristics.LENS_FACING);
+        if (facing != null && facing == CameraCharacteristics.LENS_FACING_FRONT) {
+          continue;
+        }
+
+        final StreamConfigurationMap map =
+            characteristics.get(CameraCharacteristics.SCALER_STREAM_CONFIGURATION_MAP);
+
+        if (map == null) {
+          continue;
+        }
+
+        // This should help with legacy situations where using the camera2 API causes
+        // distorted or otherwise broken previews.
+        final boolean useCamera2API =
+            (facing != null && facing == CameraCharacteristics.LENS_FACING_EXTERNAL)
+                || isHardwareLevelSupported(
+                    characteristics, CameraCharacteristics.INFO_SUPPORTED_HARDWARE_LEVEL_FULL);
+
+        prefs
+            .edit()
+            .putString(PREF_CAMERA_ID, cameraId)
+            .putBoolean(PREF_USE_CAMERA2, useCamera2API)
+            .apply();
+        synchronized (CameraSelector.class) {
+          cachedCameraId = cameraId;
+          cachedCharacteristics = characteristics;
+        }
+        return cameraId;
+      }
+    } catch (final CameraAccessException e) {
+
+    }
+
+    return null;
+  }
+
+  /** Returns whether the chosen camera works well with the camera2 API. */
+  public static boolean useCamera2API(final Context context) {
+    return getPreferences(context).getBoolean(PREF_USE_CAMERA2, false);
+  }
+
+  /** Returns the characteristics of a camera, from memory after the first call. */
+  public static CameraCharacteristics getCharacteristics(
+      final Context context, final String cameraId) {
+    synchronized (CameraSelector.class) {
+      if (cameraId.equals(cachedCameraId) && cachedCharacteristics != null) {
+        return cachedCharacteristics;
+      }
+    }
+    final CameraManager manager =
+        (CameraManager) context.getSystemService(Context.CAMERA_SERVICE);
+    try {
+      final CameraCharacteristics characteristics = manager.getCameraCharacteristics(cameraId);
+      synchronized (CameraSelector.class) {
+        cachedCameraId = cameraId;
+        cachedCharacteristics = characteristics;
+      }
+      return characteristics;
+    } catch (final CameraAccessException e) {
+      return null;
+    }
+  }
+
+  // Returns true if the device supports the required hardware level, or better.
+  private static boolean isHardwareLevelSupported(
+      CameraCharacteristics characteristics, int requiredLevel) {
+    int deviceLevel = characteristics.get(CameraCharacteristics.INFO_SUPPORTED_HARDWARE_LEVEL);
+    if (deviceLevel == CameraCharacteristics.INFO_SUPPORTED_HARDWARE_LEVEL_LEGACY) {
+      return requiredLevel == deviceLevel;
+    }
+    // deviceLevel is not LEGACY, can use numerical sort
+    return requiredLevel <= deviceLevel;
+  }
+
+  private static SharedPreferences getPreferences(final Context context) {
+    return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2019 The TensorFlow Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.tensorflow.lite.examples.detection;
+
+import android.hardware.Camera;
+import android.media.Image;
+import android.media.Image.Plane;
+import java.nio.ByteBuffer;
+import org.tensorflow.lite.examples.detection.env.YuvConverter;
+import org.tensorflow.lite.examples.detection.replay.CaptureFormat;
+import org.tensorflow.lite.examples.detection.replay.RecordedFrame;
+
+/**
+ * The frame currently going through the pipeline: where its pixels are and how to hand it back to
+ * its source. Instances are recycled through a {@link Pool}, so the camera callbacks allocate
+ * nothing per frame.
+ */
+final class FrameContext {
+  private Image image;
+  private byte[] previewBytes;
+  private Camera camera;
+  private RecordedFrame recordedFrame;
+
+  private final Pool pool;
+
+  private FrameContext(final Pool pool) {
+    this.pool = pool;
+  }
+
+  /** Holds a camera2 image, which stays open until {@link #release()}. */
+  void setImage(final Image image) {
+    this.image = image;
+  }
+
+  /** Holds a legacy NV21 preview buffer, which goes back to the camera on {@link #release()}. */
+  void setPreviewFrame(final byte[] bytes, final Camera camera) {
+    this.previewBytes = bytes;
+    this.camera = camera;
+  }
+
+  /** Holds a replayed frame. */
+  void setRecordedFrame(final RecordedFrame frame) {
+    this.recordedFrame = frame;
+  }
+
+  /** Converts the frame to ARGB, reading the planes in place. */
+  void convertTo(final int[] rgbBytes, final int width, final int height) {
+    if (image != null) {
+      final Plane[] planes = image.getPlanes();
+      YuvConverter.convertYUV420ToARGB8888(
+          planes[0].getBuffer(),
+          planes[1].getBuffer(),
+          planes[2].getBuffer(),
+          width,
+          height,
+          planes[0].getRowStride(),
+          planes[1].getRowStride(),
+          planes[1].getPixelStride(),
+          rgbBytes);
+    } else if (previewBytes != null) {
+      YuvConverter.convertYUV420SPToARGB8888(previewBytes, width, height, rgbBytes);
+    } else if (recordedFrame != null) {
+      final ByteBuffer[] planes = recordedFrame.planes;
+      if (recordedFrame.format == CaptureFormat.FORMAT_NV21) {
+        YuvConverter.convertYUV420SPToARGB8888(planes[0], width, height, rgbBytes);
+      } else {
+        YuvConverter.convertYUV420ToARGB8888(
+            planes[0],
+            planes[1],
+            planes[2],
+            width,
+            height,
+            recordedFrame.rowStrides[0],
+            recordedFrame.rowStrides[1],
+            recordedFrame.pixelStrides[1],
+            rgbBytes);
+      }
+    }
+  }
+
+  /** Hands the frame back to its source and returns this context to the pool. */
+  void release() {
+    if (image != null) {
+      image.close();
+      image = null;
+    }
+    if (camera != null) {
+      camera.addCallbackBuffer(previewBytes);
+      camera = null;
+    }
+    previewBytes = null;
+    recordedFrame = null;
+    pool.recycle(this);
+  }
+
+  /** A fixed set of contexts, one per frame that can be in flight. */
+  static final class Pool {
+    private final FrameContext[] free;
+    private int freeCount;
+
+    Pool(final int size) {
+      free = new FrameContext[size];
+      for (int i = 0; i < size; ++i) {
+        free[i] = new FrameContext(this);
+      }
+      freeCount = size;
+    }
+
+    /** Returns a free context, or null if all of them are in flight. */
+    synchronized FrameContext obtain() {
+      return freeCount > 0 ? free[--freeCount] : null;
+    }
+
+    private synchronized void recycle(final FrameContext context) {
+      free[freeCount++] = context;
+    }
+  }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2019 The TensorFlow Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.tensorflow.lite.examples.detection;
+
+import android.os.Process;
+import android.util.Log;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Runs inference work on a single thread with a fixed priority.
+ *
+ * <p>Tasks wait in a bounded queue; when it is full new tasks are rejected instead of piling up
+ * behind a slow model. Configuration changes such as the thread count are kept apart from the
+ * tasks: they run before the next queued task, and a newer change with the same key replaces one
+ * that has not run yet. The time tasks spend waiting in the queue is recorded.
+ */
+public class InferenceExecutor {
+  private static final String TAG = "InferenceExecutor";
+
+  private final Thread thread;
+  private final int priority;
+
+  // Ring buffer of queued tasks and the time each was queued.
+  private final Runnable[] tasks;
+  private final long[] queuedAtNs;
+  private int head;
+  private int count;
+
+  private final Map<Object, Runnable> pendingConfig = new LinkedHashMap<>();
+  private boolean quitting;
+
+  private long tasksRun;
+  private long tasksRejected;
+  private long totalWaitNs;
+  private long maxWaitNs;
+
+  /**
+   * @param name Name of the worker thread.
+   * @param priority Linux priority of the worker thread, one of the {@link Process}
+   *     THREAD_PRIORITY_* values.
+   * @param capacity Number of tasks that can wait in the queue.
+   */
+  public InferenceExecutor(final String name, final int priority, final int capacity) {
+    this.priority = priority;
+    tasks = new Runnable[capacity];
+    queuedAtNs = new long[capacity];
+    thread =
+        new Thread(
+            new Runnable() {
+              @Override
+              public void run() {
+                loop();
+              }
+            },
+            name);
+    thread.start();
+  }
+
+  /** Queues a task. Returns false if the queue is full or the executor is shutting down. */
+  public synchronized boolean execute(final Runnable task) {
+    if (quitting || count == tasks.length) {
+      ++tasksRejected;
+      return false;
+    }
+    final int tail = (head + count) % tasks.length;
+    tasks[tail] = task;
+    queuedAtNs[tail] = System.nanoTime();
+    ++count;
+    notify();
+    return true;
+  }
+
+  /**
+   * Queues a configuration change ahead of the waiting tasks, replacing any change with the same
+   * key that has not run yet.
+   */
+  public synchronized void executeConfig(final Object key, final Runnable change) {
+    if (quitting) {
+      return;
+    }
+    pendingConfig.remove(key);
+    pendingConfig.put(key, change);
+    notify();
+  }
+
+  /** Stops taking work and lets the thread finish everything already queued. */
+  public synchronized void quitSafely() {
+    quitting = true;
+    notify();
+  }
+
+  public void join() throws InterruptedException {
+    thread.join();
+  }
+
+  /** Returns the queue statistics since the executor was created. */
+  public synchronized String getStats() {
+    return String.format(
+        "run %d, rejected %d, queue wait avg %.2f ms, max %.2f ms",
+        tasksRun,
+        tasksRejected,
+        tasksRun > 0 ? totalWaitNs / 1e6 / tasksRun : 0.0,
+        maxWaitNs / 1e6);
+  }
+
+  private void loop() {
+    Process.setThreadPriority(priority);
+    while (true) {
+      final Runnable next;
+      synchronized (this) {
+        while (pendingConfig.isEmpty() && count == 0 && !quitting) {
+          try {
+            wait();
+          } catch (final InterruptedException e) {
+            return;
+          }
+        }
+        if (!pendingConfig.isEmpty()) {
+          final Iterator<Runnable> it = pendingConfig.values().iterator();
+          next = it.next();
+          it.remove();
+        } else if (count > 0) {
+          next = tasks[head];
+          final long waitNs = System.nanoTime() - queuedAtNs[head];
+          tasks[head] = null;
+          head = (head + 1) % tasks.length;
+          --count;
+          ++tasksRun;
+          totalWaitNs += waitNs;
+          maxWaitNs = Math.max(maxWaitNs, waitNs);
+        } else {
+          return;
+        }
+      }
+      // A failing task must not take the thread, and every later task, down with it.
+      try {
+        next.run();
+      } catch (final RuntimeException e) {
+        Log.e(TAG, "Inference task failed", e);
+      }
+    }
+  }
+}
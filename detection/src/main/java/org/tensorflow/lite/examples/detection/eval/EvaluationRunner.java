@@ -0,0 +1,454 @@
+/* Copyright 2019 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow.lite.examples.detection.eval;
+
+import android.graphics.Bitmap;
+import android.graphics.Bitmap.Config;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.tensorflow.lite.examples.detection.env.ImageUtils;
+import org.tensorflow.lite.examples.detection.env.YuvConverter;
+import org.tensorflow.lite.examples.detection.replay.CaptureFormat;
+import org.tensorflow.lite.examples.detection.replay.FrameCorpus;
+import org.tensorflow.lite.examples.detection.replay.RecordedFrame;
+import org.tensorflow.lite.examples.detection.tflite.Classifier;
+import org.tensorflow.lite.examples.detection.tflite.DetectionBatch;
+import org.tensorflow.lite.examples.detection.tflite.TFLiteObjectDetectionAPIModel;
+
+/**
+ * Runs a directory of images and capture files through the detector and reports precision and
+ * recall for the target class, throughput and inference latency.
+ *
+ * <p>The work is spread over a fixed pool of threads. {@code Interpreter} is not thread-safe, so
+ * every worker thread creates its own detector and reuses it for all of its frames.
+ *
+ * <p>Ground truth is read from {@code groundtruth.txt} in the input directory, one {@code <file
+ * name> <0|1>} line per file, 1 meaning the target is in the picture. All frames of a capture file
+ * share the label of the file. Files without a label are skipped.
+ *
+ * <pre>
+ * EvaluationRunner --model detect.tflite --labels labelmap.txt [--threads N] [--input-size 300]
+ *     [--mean 128] [--std 128] [--threshold 0.65] [--target toothbrush] input-dir
+ * </pre>
+ *
+ * <p>The detector needs {@code android.graphics} and the TensorFlow Lite native library, so the
+ * runner is started with {@code app_process} on a device, emulator or Android container.
+ */
+public class EvaluationRunner {
+  private static final String GROUND_TRUTH_FILE = "groundtruth.txt";
+  private static final String CAPTURE_SUFFIX = ".tfrf";
+
+  // Defaults for the model bundled in the assets, see detect.json.
+  private static final int DEFAULT_INPUT_SIZE = 300;
+  private static final float DEFAULT_THRESHOLD = 0.65f;
+  private static final String DEFAULT_TARGET_CLASS = "toothbrush";
+
+  private final File modelFile;
+  private final File labelFile;
+  private final int inputSize;
+  private final float imageMean;
+  private final float imageStd;
+  private final String targetClass;
+  private final int numThreads;
+
+  // All detectors created by the pool, closed once the run is over.
+  private final List<Worker> workers = new ArrayList<>();
+  private final ThreadLocal<Worker> worker =
+      new ThreadLocal<Worker>() {
+        @Override
+        protected Worker initialValue() {
+          final Worker w = new Worker();
+          synchronized (workers) {
+            workers.add(w);
+          }
+          return w;
+        }
+      };
+
+  public EvaluationRunner(
+      final File modelFile,
+      final File labelFile,
+      final int inputSize,
+      final float imageMean,
+      final float imageStd,
+      final String targetClass,
+      final int numThreads) {
+    this.modelFile = modelFile;
+    this.labelFile = labelFile;
+    this.inputSize = inputSize;
+    this.imageMean = imageMean;
+    this.imageStd = imageStd;
+    this.targetClass = targetClass;
+    this.numThreads = numThreads;
+  }
+
+  /** Evaluates every labelled file in the directory. */
+  public Report run(final File inputDir) throws IOException, InterruptedException {
+    final Map<String, Boolean> groundTruth = readGroundTruth(new File(inputDir, GROUND_TRUTH_FILE));
+    final File[] files = inputDir.listFiles();
+    if (files == null) {
+      throw new IOException("Cannot list " + inputDir);
+    }
+    Arrays.sort(files);
+
+    final List<FrameCorpus> corpora = new ArrayList<>();
+    final List<Callable<Result>> tasks = new ArrayList<>();
+    try {
+      for (final File file : files) {
+        final Boolean positive = groundTruth.get(file.getName());
+        if (positive == null) {
+          continue;
+        }
+        if (file.getName().endsWith(CAPTURE_SUFFIX)) {
+          final FrameCorpus corpus = new FrameCorpus(file);
+          corpora.add(corpus);
+          for (int i = 0; i < corpus.size(); ++i) {
+            tasks.add(new CaptureTask(corpus, i, positive));
+          }
+        } else {
+          tasks.add(new ImageTask(file, positive));
+        }
+      }
+
+      final ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+      final long startNs = System.nanoTime();
+      final List<Result> results = new ArrayList<>(tasks.size());
+      try {
+        for (final Future<Result> future : executor.invokeAll(tasks)) {
+          try {
+            results.add(future.get());
+          } catch (final ExecutionException e) {
+            throw new IOException("Evaluation failed", e.getCause());
+          }
+        }
+      } finally {
+        executor.shutdownNow();
+      }
+      final long elapsedNs = System.nanoTime() - startNs;
+      return new Report(results, elapsedNs, numThreads);
+    } finally {
+      for (final FrameCorpus corpus : corpora) {
+        corpus.close();
+      }
+      synchronized (workers) {
+        for (final Worker w : workers) {
+          w.detector.close();
+        }
+        workers.clear();
+      }
+    }
+  }
+
+  private static Map<String, Boolean> readGroundTruth(final File file) throws IOException {
+    final Map<String, Boolean> labels = new HashMap<>();
+    try (BufferedReader br = new BufferedReader(new FileReader(file))) {
+      String line;
+      while ((line = br.readLine()) != null) {
+        line = line.trim();
+        if (line.isEmpty() || line.startsWith("#")) {
+          continue;
+        }
+        final int split = line.lastIndexOf(' ');
+        if (split < 0) {
+          throw new IOException("Bad ground truth line: " + line);
+        }
+        labels.put(line.substring(0, split).trim(), "1".equals(line.substring(split + 1)));
+      }
+    }
+    return labels;
+  }
+
+  /** Detector and scratch bitmaps owned by one pool thread. */
+  private class Worker {
+    final Classifier detector;
+    final Bitmap croppedBitmap;
+    final Canvas cropCanvas;
+    int[] rgbBytes;
+    Bitmap rgbFrameBitmap;
+
+    Worker() {
+      try {
+        detector =
+            TFLiteObjectDetectionAPIModel.create(
+                modelFile, labelFile, inputSize, imageMean, imageStd);
+      } catch (final IOException e) {
+        throw new RuntimeException(e);
+      }
+      // The pool already keeps every core busy; more interpreter threads would only contend.
+      detector.setNumThreads(1);
+      croppedBitmap = Bitmap.createBitmap(inputSize, inputSize, Config.ARGB_8888);
+      cropCanvas = new Canvas(croppedBitmap);
+    }
+
+    /** Scales the frame to the model input the same way the detector activities do and runs it. */
+    Result detect(final Bitmap frame, final int rotation, final boolean positive) {
+      final Matrix frameToCropTransform =
+          ImageUtils.getTransformationMatrix(
+              frame.getWidth(), frame.getHeight(), inputSize, inputSize, rotation, false);
+      cropCanvas.drawBitmap(frame, frameToCropTransform, null);
+
+      final long startNs = System.nanoTime();
+      final DetectionBatch detections = detector.detect(croppedBitmap);
+      final long latencyNs = System.nanoTime() - startNs;
+
+      final float score = detections.getBestScore(targetClass);
+      return new Result(positive, score, latencyNs);
+    }
+
+    Bitmap frameBitmap(final int width, final int height) {
+      if (rgbFrameBitmap == null
+          || rgbFrameBitmap.getWidth() != width
+          || rgbFrameBitmap.getHeight() != height) {
+        rgbFrameBitmap = Bitmap.createBitmap(width, height, Config.ARGB_8888);
+        rgbBytes = new int[width * height];
+      }
+      return rgbFrameBitmap;
+    }
+  }
+
+  private class ImageTask implements Callable<Result> {
+    private final File file;
+    private final boolean positive;
+
+    ImageTask(final File file, final boolean positive) {
+      this.file = file;
+      this.positive = positive;
+    }
+
+    @Override
+    public Result call() throws IOException {
+      final Bitmap bitmap = BitmapFactory.decodeFile(file.getPath());
+      if (bitmap == null) {
+        throw new IOException("Cannot decode " + file);
+      }
+      try {
+        return worker.get().detect(bitmap, 0, positive);
+      } finally {
+        bitmap.recycle();
+      }
+    }
+  }
+
+  private class CaptureTask implements Callable<Result> {
+    private final FrameCorpus corpus;
+    private final int index;
+    private final boolean positive;
+
+    CaptureTask(final FrameCorpus corpus, final int index, final boolean positive) {
+      this.corpus = corpus;
+      this.index = index;
+      this.positive = positive;
+    }
+
+    @Override
+    public Result call() throws IOException {
+      final RecordedFrame frame = corpus.get(index);
+      final Worker w = worker.get();
+      final Bitmap bitmap = w.frameBitmap(frame.width, frame.height);
+      if (frame.format == CaptureFormat.FORMAT_NV21) {
+        YuvConverter.convertYUV420SPToARGB8888(frame.planes[0], frame.width, frame.height, w.rgbBytes);
+      } else {
+        YuvConverter.convertYUV420ToARGB8888(
+            frame.planes[0],
+            frame.planes[1],
+            frame.planes[2],
+            frame.width,
+            frame.height,
+            frame.rowStrides[0],
+            frame.rowStrides[1],
+            frame.pixelStrides[1],
+            w.rgbBytes);
+      }
+      bitmap.setPixels(w.rgbBytes, 0, frame.width, 0, 0, frame.width, frame.height);
+      return w.detect(bitmap, frame.rotation, positive);
+    }
+  }
+
+  /** Outcome of one frame: its label, the best target score and the inference time. */
+  static class Result {
+    final boolean positive;
+    final float score;
+    final long latencyNs;
+
+    Result(final boolean positive, final float score, final long latencyNs) {
+      this.positive = positive;
+      this.score = score;
+      this.latencyNs = latencyNs;
+    }
+  }
+
+  /** Aggregated numbers of a run. */
+  public static class Report {
+    private final List<Result> results;
+    private final long elapsedNs;
+    private final int numThreads;
+    private final long[] sortedLatencies;
+
+    Report(final List<Result> results, final long elapsedNs, final int numThreads) {
+      this.results = results;
+      this.elapsedNs = elapsedNs;
+      this.numThreads = numThreads;
+      sortedLatencies = new long[results.size()];
+      for (int i = 0; i < sortedLatencies.length; ++i) {
+        sortedLatencies[i] = results.get(i).latencyNs;
+      }
+      Arrays.sort(sortedLatencies);
+    }
+
+    public int getFrameCount() {
+      return results.size();
+    }
+
+    public float getFramesPerSecond() {
+      return elapsedNs > 0 ? results.size() * 1e9f / elapsedNs : 0;
+    }
+
+    /** Returns the inference latency below which the given fraction of frames finished. */
+    public float getLatencyPercentileMs(final float fraction) {
+      if (sortedLatencies.length == 0) {
+        return 0;
+      }
+      final int index = (int) Math.ceil(fraction * sortedLatencies.length) - 1;
+      return sortedLatencies[Math.max(0, Math.min(index, sortedLatencies.length - 1))] / 1e6f;
+    }
+
+    /** Returns {precision, recall} when frames scoring at least the threshold count as detected. */
+    public float[] getPrecisionRecall(final float threshold) {
+      int truePositives = 0;
+      int falsePositives = 0;
+      int falseNegatives = 0;
+      for (final Result result : results) {
+        final boolean detected = result.score >= threshold;
+        if (detected && result.positive) {
+          ++truePositives;
+        } else if (detected) {
+          ++falsePositives;
+        } else if (result.positive) {
+          ++falseNegatives;
+        }
+      }
+      final float precision =
+          truePositives + falsePositives > 0
+              ? (float) truePositives / (truePositives + falsePositives)
+              : 1;
+      final float recall =
+          truePositives + falseNegatives > 0
+              ? (float) truePositives / (truePositives + falseNegatives)
+              : 1;
+      return new float[] {precision, recall};
+    }
+
+    /** Formats the summary, with a threshold sweep so the operating point can be picked. */
+    public String format(final float threshold) {
+      final StringBuilder sb = new StringBuilder();
+      final float[] pr = getPrecisionRecall(threshold);
+      sb.append(
+          String.format(
+              Locale.US,
+              "frames %d, threads %d, %.1f fps%n"
+                  + "latency p50 %.1f ms, p90 %.1f ms, p99 %.1f ms%n"
+                  + "threshold %.2f: precision %.3f, recall %.3f%n%n",
+              getFrameCount(),
+              numThreads,
+              getFramesPerSecond(),
+              getLatencyPercentileMs(0.5f),
+              getLatencyPercentileMs(0.9f),
+              getLatencyPercentileMs(0.99f),
+              threshold,
+              pr[0],
+              pr[1]));
+      sb.append("threshold precision recall\n");
+      for (int step = 1; step < 20; ++step) {
+        final float t = step * 0.05f;
+        final float[] sweep = getPrecisionRecall(t);
+        sb.append(String.format(Locale.US, "%9.2f %9.3f %6.3f%n", t, sweep[0], sweep[1]));
+      }
+      return sb.toString();
+    }
+  }
+
+  public static void main(final String[] args) throws Exception {
+    File modelFile = null;
+    File labelFile = null;
+    File inputDir = null;
+    int numThreads = Runtime.getRuntime().availableProcessors();
+    int inputSize = DEFAULT_INPUT_SIZE;
+    float imageMean = TFLiteObjectDetectionAPIModel.DEFAULT_IMAGE_MEAN;
+    float imageStd = TFLiteObjectDetectionAPIModel.DEFAULT_IMAGE_STD;
+    float threshold = DEFAULT_THRESHOLD;
+    String targetClass = DEFAULT_TARGET_CLASS;
+
+    for (int i = 0; i < args.length; ++i) {
+      switch (args[i]) {
+        case "--model":
+          modelFile = new File(args[++i]);
+          break;
+        case "--labels":
+          labelFile = new File(args[++i]);
+          break;
+        case "--threads":
+          numThreads = Integer.parseInt(args[++i]);
+          break;
+        case "--input-size":
+          inputSize = Integer.parseInt(args[++i]);
+          break;
+        case "--mean":
+          imageMean = Float.parseFloat(args[++i]);
+          break;
+        case "--std":
+          imageStd = Float.parseFloat(args[++i]);
+          break;
+        case "--threshold":
+          threshold = Float.parseFloat(args[++i]);
+          break;
+        case "--target":
+          targetClass = args[++i];
+          break;
+        default:
+          inputDir = new File(args[i]);
+          break;
+      }
+    }
+    if (modelFile == null || labelFile == null || inputDir == null) {
+      System.err.println(
+          "usage: EvaluationRunner --model <file> --labels <file> [--threads <n>]"
+              + " [--input-size <px>] [--mean <value>] [--std <value>] [--threshold <score>]"
+              + " [--target <label>] <input dir>");
+      System.exit(2);
+    }
+
+    final EvaluationRunner runner =
+        new EvaluationRunner(
+            modelFile, labelFile, inputSize, imageMean, imageStd, targetClass, numThreads);
+    System.out.print(runner.run(inputDir).format(threshold));
+  }
+}
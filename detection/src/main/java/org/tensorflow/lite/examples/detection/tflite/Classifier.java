@@ -17,12 +17,26 @@ package org.tensorflow.lite.examples.detection.tflite;
 
 import android.graphics.Bitmap;
 import android.graphics.RectF;
+import java.util.ArrayList;
 import java.util.List;
 
 /** Generic interface for interacting with different recognition engines. */
 public interface Classifier {
+  /**
+   * Detects objects in the image. The returned batch belongs to the classifier and is overwritten
+   * by the next call, so it has to be used up or copied before then.
+   */
+  DetectionBatch detect(Bitmap bitmap);
+
+  /** Same as {@link #detect(Bitmap)}, with a newly allocated result object per detection. */
   List<Recognition> recognizeImage(Bitmap bitmap);
 
+  /**
+   * Runs several images at once, e.g. for offline evaluation. Returns one result list per image, in
+   * the same order.
+   */
+  List<List<Recognition>> recognizeImages(List<Bitmap> bitmaps);
+
   void enableStatLogging(final boolean debug);
 
   String getStatString();
@@ -33,7 +47,10 @@ public interface Classifier {
 
   void setUseNNAPI(boolean isChecked);
 
-  /** An immutable result returned by a Classifier describing what was recognized. */
+  /**
+   * An immutable result returned by a Classifier describing what was recognized. Kept for callers
+   * written against the object-per-detection API; new code reads a {@link DetectionBatch}.
+   */
   public class Recognition {
     /**
      * A unique identifier for what has been recognized. Specific to the class, not the instance of
@@ -60,6 +77,21 @@ public interface Classifier {
       this.location = location;
     }
 
+    /** Copies the detections of a batch into new Recognitions. */
+    public static List<Recognition> listOf(final DetectionBatch batch) {
+      final List<Recognition> recognitions = new ArrayList<>(batch.size());
+      for (int i = 0; i < batch.size(); ++i) {
+        recognitions.add(
+            new Recognition(
+                String.valueOf(i),
+                batch.getLabel(i),
+                batch.getScore(i),
+                new RectF(
+                    batch.getLeft(i), batch.getTop(i), batch.getRight(i), batch.getBottom(i))));
+      }
+      return recognitions;
+    }
+
     public String getId() {
       return id;
     }
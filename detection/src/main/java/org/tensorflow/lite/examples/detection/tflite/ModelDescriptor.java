@@ -0,0 +1,168 @@
+/* Copyright 2019 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow.lite.examples.detection.tflite;
+
+import java.io.File;
+import java.io.IOException;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Metadata of a detection model, read from a JSON sidecar next to the model file:
+ *
+ * <pre>
+ * {
+ *   "version": 1,
+ *   "model": "detect.tflite",
+ *   "labels": "labelmap.txt",
+ *   "inputSize": 300,
+ *   "imageMean": 128,
+ *   "imageStd": 128,
+ *   "targetClass": "toothbrush",
+ *   "minimumConfidence": 0.65
+ * }
+ * </pre>
+ *
+ * <p>{@code imageMean} and {@code imageStd} give the normalization the model was trained with and
+ * default to that of the Object Detection API models. Whether the model is quantized is read from
+ * the model itself.
+ *
+ * <p>File names are relative to the directory of the descriptor, or to the assets root for
+ * models bundled with the app.
+ */
+public class ModelDescriptor {
+  private static final float DEFAULT_MINIMUM_CONFIDENCE = 0.65f;
+
+  private final String name;
+  private final File directory;
+  private final int version;
+  private final String modelFile;
+  private final String labelFile;
+  private final int inputSize;
+  private final float imageMean;
+  private final float imageStd;
+  private final String targetClass;
+  private final float minimumConfidence;
+
+  public ModelDescriptor(
+      final String name,
+      final File directory,
+      final int version,
+      final String modelFile,
+      final String labelFile,
+      final int inputSize,
+      final float imageMean,
+      final float imageStd,
+      final String targetClass,
+      final float minimumConfidence) {
+    this.name = name;
+    this.directory = directory;
+    this.version = version;
+    this.modelFile = modelFile;
+    this.labelFile = labelFile;
+    this.inputSize = inputSize;
+    this.imageMean = imageMean;
+    this.imageStd = imageStd;
+    this.targetClass = targetClass;
+    this.minimumConfidence = minimumConfidence;
+  }
+
+  /**
+   * Parses a descriptor.
+   *
+   * @param name Name of the model, the descriptor file name without extension.
+   * @param directory Directory holding the model files, or null if they are assets.
+   * @param json Contents of the descriptor.
+   */
+  public static ModelDescriptor parse(final String name, final File directory, final String json)
+      throws IOException {
+    try {
+      final JSONObject o = new JSONObject(json);
+      return new ModelDescriptor(
+          name,
+          directory,
+          o.getInt("version"),
+          o.getString("model"),
+          o.getString("labels"),
+          o.getInt("inputSize"),
+          (float) o.optDouble("imageMean", TFLiteObjectDetectionAPIModel.DEFAULT_IMAGE_MEAN),
+          (float) o.optDouble("imageStd", TFLiteObjectDetectionAPIModel.DEFAULT_IMAGE_STD),
+          o.getString("targetClass"),
+          (float) o.optDouble("minimumConfidence", DEFAULT_MINIMUM_CONFIDENCE));
+    } catch (final JSONException e) {
+      throw new IOException("Invalid model descriptor " + name + ": " + e.getMessage());
+    }
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /** Returns the directory of the model files, or null if the model is bundled in the assets. */
+  public File getDirectory() {
+    return directory;
+  }
+
+  public boolean isAsset() {
+    return directory == null;
+  }
+
+  public int getVersion() {
+    return version;
+  }
+
+  public String getModelFile() {
+    return modelFile;
+  }
+
+  public String getLabelFile() {
+    return labelFile;
+  }
+
+  public int getInputSize() {
+    return inputSize;
+  }
+
+  public float getImageMean() {
+    return imageMean;
+  }
+
+  public float getImageStd() {
+    return imageStd;
+  }
+
+  /** Returns the label whose detection counts as a hit. */
+  public String getTargetClass() {
+    return targetClass;
+  }
+
+  public float getMinimumConfidence() {
+    return minimumConfidence;
+  }
+
+  /** Returns true if both describe the same model files at the same version. */
+  public boolean isSameModel(final ModelDescriptor other) {
+    return other != null
+        && name.equals(other.name)
+        && version == other.version
+        && (directory == null ? other.directory == null : directory.equals(other.directory));
+  }
+
+  @Override
+  public String toString() {
+    return name + " v" + version + (isAsset() ? " (asset)" : " (" + directory + ")");
+  }
+}
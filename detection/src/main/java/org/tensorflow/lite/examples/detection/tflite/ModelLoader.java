@@ -0,0 +1,192 @@
+/* Copyright 2019 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow.lite.examples.detection.tflite;
+
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Loads model files and label tables with as little copying as possible.
+ *
+ * <p>Models are memory-mapped when they are plain files or uncompressed assets. Compressed assets
+ * cannot be mapped, so they are streamed once into a direct buffer that is kept for the life of
+ * the process and shared by every interpreter created from the same asset. Parsed label tables are
+ * cached by the CRC32 of their contents, also only for the life of the process.
+ */
+final class ModelLoader {
+  static final String ASSET_PREFIX = "file:///android_asset/";
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  // Compressed assets already streamed into a direct buffer, by asset name.
+  private static final Map<String, ByteBuffer> streamedModels = new HashMap<>();
+  // Parsed label tables, by content hash.
+  private static final Map<Long, List<String>> labelTables = new HashMap<>();
+
+  private ModelLoader() {}
+
+  /** Returns the asset name for a label or model path with or without the asset URI prefix. */
+  static String toAssetName(final String path) {
+    return path.startsWith(ASSET_PREFIX) ? path.substring(ASSET_PREFIX.length()) : path;
+  }
+
+  /** Maps the asset if it is stored uncompressed, otherwise streams it into a pooled buffer. */
+  static ByteBuffer loadModel(final AssetManager assets, final String assetName)
+      throws IOException {
+    final AssetFileDescriptor fileDescriptor;
+    try {
+      fileDescriptor = assets.openFd(assetName);
+    } catch (final FileNotFoundException e) {
+      // openFd() fails for compressed assets.
+      return streamModel(assets, assetName);
+    }
+    try (FileInputStream inputStream = new FileInputStream(fileDescriptor.getFileDescriptor())) {
+      return inputStream
+          .getChannel()
+          .map(
+              FileChannel.MapMode.READ_ONLY,
+              fileDescriptor.getStartOffset(),
+              fileDescriptor.getDeclaredLength());
+    } finally {
+      fileDescriptor.close();
+    }
+  }
+
+  /** Maps a model file on disk. */
+  static ByteBuffer loadModel(final File modelFile) throws IOException {
+    try (FileInputStream inputStream = new FileInputStream(modelFile)) {
+      final FileChannel fileChannel = inputStream.getChannel();
+      return fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size());
+    }
+  }
+
+  private static ByteBuffer streamModel(final AssetManager assets, final String assetName)
+      throws IOException {
+    synchronized (streamedModels) {
+      final ByteBuffer cached = streamedModels.get(assetName);
+      if (cached != null) {
+        return cached.duplicate().order(ByteOrder.nativeOrder());
+      }
+    }
+
+    final ByteBuffer buffer;
+    try (InputStream input = assets.open(assetName, AssetManager.ACCESS_STREAMING)) {
+      // available() of an asset stream is the remaining uncompressed size.
+      ByteBuffer direct =
+          ByteBuffer.allocateDirect(Math.max(input.available(), 1)).order(ByteOrder.nativeOrder());
+      final ReadableByteChannel channel = Channels.newChannel(input);
+      while (channel.read(direct) >= 0) {
+        if (!direct.hasRemaining()) {
+          final ByteBuffer larger =
+              ByteBuffer.allocateDirect(direct.capacity() * 2).order(ByteOrder.nativeOrder());
+          direct.flip();
+          larger.put(direct);
+          direct = larger;
+        }
+      }
+      direct.flip();
+      buffer = direct;
+    }
+
+    synchronized (streamedModels) {
+      final ByteBuffer raced = streamedModels.get(assetName);
+      if (raced != null) {
+        return raced.duplicate().order(ByteOrder.nativeOrder());
+      }
+      streamedModels.put(assetName, buffer);
+    }
+    // duplicate() resets the byte order to big-endian. The interpreter rejects direct buffers that
+    // are neither mapped nor in native order.
+    return buffer.duplicate().order(ByteOrder.nativeOrder());
+  }
+
+  /** Returns the label table of an asset, one label per line. */
+  static List<String> loadLabels(final AssetManager assets, final String assetName)
+      throws IOException {
+    try (InputStream input = assets.open(assetName, AssetManager.ACCESS_BUFFER)) {
+      return loadLabels(input);
+    }
+  }
+
+  /** Returns the label table of a file, one label per line. */
+  static List<String> loadLabels(final File labelFile) throws IOException {
+    try (InputStream input = new FileInputStream(labelFile)) {
+      return loadLabels(input);
+    }
+  }
+
+  private static List<String> loadLabels(final InputStream input) throws IOException {
+    byte[] bytes = new byte[Math.max(input.available(), 256)];
+    int length = 0;
+    int read;
+    while ((read = input.read(bytes, length, bytes.length - length)) != -1) {
+      length += read;
+      if (length == bytes.length) {
+        final byte[] larger = new byte[bytes.length * 2];
+        System.arraycopy(bytes, 0, larger, 0, length);
+        bytes = larger;
+      }
+    }
+
+    final CRC32 crc = new CRC32();
+    crc.update(bytes, 0, length);
+    final Long hash = crc.getValue() ^ ((long) length << 32);
+    synchronized (labelTables) {
+      final List<String> cached = labelTables.get(hash);
+      if (cached != null) {
+        return cached;
+      }
+    }
+
+    final List<String> labels = new ArrayList<>();
+    int start = 0;
+    for (int i = 0; i <= length; ++i) {
+      if (i == length || bytes[i] == '\n') {
+        int end = i;
+        if (end > start && bytes[end - 1] == '\r') {
+          --end;
+        }
+        // A trailing newline does not start another label.
+        if (i < length || end > start) {
+          labels.add(new String(bytes, start, end - start, UTF_8));
+        }
+        start = i + 1;
+      }
+    }
+    final List<String> table = Collections.unmodifiableList(labels);
+    synchronized (labelTables) {
+      labelTables.put(hash, table);
+    }
+    return table;
+  }
+}
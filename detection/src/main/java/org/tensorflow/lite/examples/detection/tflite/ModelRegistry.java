@@ -0,0 +1,290 @@
+/* Copyright 2019 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow.lite.examples.detection.tflite;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.res.AssetManager;
+import android.util.Log;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Finds the detection models available to the app and tracks which one is active.
+ *
+ * <p>Models are described by a {@link ModelDescriptor} JSON sidecar. They are looked up in the
+ * {@code models} directory of the app storage, where new models can be rolled out without a new
+ * APK, and in the assets root, which holds the model bundled with the app. Unless a model has been
+ * pinned with {@link #setActiveModel(String)}, the one with the highest version wins, stored
+ * models before bundled ones.
+ */
+public class ModelRegistry {
+
+  /** Notified when a different model becomes active. */
+  public interface Listener {
+    void onActiveModelChanged(ModelDescriptor descriptor);
+  }
+
+  private static final String MODELS_DIR = "models";
+  private static final String DESCRIPTOR_SUFFIX = ".json";
+  private static final String PREFS_NAME = "model_registry";
+  private static final String PREF_ACTIVE_MODEL = "active_model";
+  private static final String TAG = "ModelRegistry";
+
+  private static ModelRegistry instance;
+
+  private final Context context;
+  private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+  // Detector for the active model being loaded ahead of time.
+  private FutureTask<Prewarmed> prewarmed;
+
+  private ModelRegistry(final Context context) {
+    this.context = context;
+  }
+
+  public static synchronized ModelRegistry getInstance(final Context context) {
+    if (instance == null) {
+      instance = new ModelRegistry(context.getApplicationContext());
+    }
+    return instance;
+  }
+
+  /** Returns the directory new models and their descriptors are installed into. */
+  public File getModelDir() {
+    return new File(context.getFilesDir(), MODELS_DIR);
+  }
+
+  /**
+   * Returns all models with a valid descriptor and all their files present, stored models first.
+   * Other descriptors are logged and skipped, so that a broken rollout cannot stop detection.
+   */
+  public List<ModelDescriptor> getModels() throws IOException {
+    final List<ModelDescriptor> models = new ArrayList<>();
+
+    final File modelDir = getModelDir();
+    final File[] files = modelDir.listFiles();
+    if (files != null) {
+      for (final File file : files) {
+        final String fileName = file.getName();
+        if (!fileName.endsWith(DESCRIPTOR_SUFFIX)) {
+          continue;
+        }
+        final ModelDescriptor model;
+        try {
+          model =
+              ModelDescriptor.parse(
+                  baseName(fileName), modelDir, readFully(new FileInputStream(file)));
+        } catch (final IOException e) {
+          Log.w(TAG, "Skipping model descriptor " + file, e);
+          continue;
+        }
+        if (!new File(modelDir, model.getModelFile()).isFile()
+            || !new File(modelDir, model.getLabelFile()).isFile()) {
+          Log.w(TAG, "Skipping model " + model + ": model or label file missing");
+          continue;
+        }
+        models.add(model);
+      }
+    }
+
+    final AssetManager assets = context.getAssets();
+    final String[] assetNames = assets.list("");
+    if (assetNames != null) {
+      final List<String> names = Arrays.asList(assetNames);
+      for (final String assetName : assetNames) {
+        if (!assetName.endsWith(DESCRIPTOR_SUFFIX)) {
+          continue;
+        }
+        final ModelDescriptor model;
+        try {
+          model =
+              ModelDescriptor.parse(baseName(assetName), null, readFully(assets.open(assetName)));
+        } catch (final IOException e) {
+          Log.w(TAG, "Skipping model descriptor " + assetName, e);
+          continue;
+        }
+        if (!names.contains(model.getModelFile()) || !names.contains(model.getLabelFile())) {
+          Log.w(TAG, "Skipping model " + model + ": model or label file missing");
+          continue;
+        }
+        models.add(model);
+      }
+    }
+    return models;
+  }
+
+  /** Returns the model that should be used, or null if there is none. */
+  public synchronized ModelDescriptor getActiveModel() throws IOException {
+    final String pinned = getPreferences().getString(PREF_ACTIVE_MODEL, null);
+    ModelDescriptor best = null;
+    for (final ModelDescriptor model : getModels()) {
+      if (model.getName().equals(pinned)) {
+        return model;
+      }
+      if (best == null || model.getVersion() > best.getVersion()) {
+        best = model;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Pins the model with the given name, or unpins with null, and tells the listeners about the
+   * resulting active model.
+   */
+  public void setActiveModel(final String name) throws IOException {
+    synchronized (this) {
+      getPreferences().edit().putString(PREF_ACTIVE_MODEL, name).apply();
+    }
+    notifyModelsChanged();
+  }
+
+  /** Must be called after models were installed or removed, so listeners can switch models. */
+  public void notifyModelsChanged() throws IOException {
+    final ModelDescriptor active = getActiveModel();
+    if (active == null) {
+      return;
+    }
+    for (final Listener listener : listeners) {
+      listener.onActiveModelChanged(active);
+    }
+  }
+
+  public void addListener(final Listener listener) {
+    listeners.add(listener);
+  }
+
+  public void removeListener(final Listener listener) {
+    listeners.remove(listener);
+  }
+
+  /**
+   * Starts loading a detector for the active model on a background thread, so that the next
+   * {@link #createClassifier(ModelDescriptor)} for it only has to wait for what is left.
+   */
+  public void prewarm() {
+    final FutureTask<Prewarmed> task =
+        new FutureTask<>(
+            new Callable<Prewarmed>() {
+              @Override
+              public Prewarmed call() throws IOException {
+                final ModelDescriptor model = getActiveModel();
+                return model != null ? new Prewarmed(model, loadClassifier(model)) : null;
+              }
+            });
+    synchronized (this) {
+      if (prewarmed != null) {
+        return;
+      }
+      prewarmed = task;
+    }
+    new Thread(task, "model-prewarm").start();
+  }
+
+  /**
+   * Creates a detector for the given model. The model file is memory-mapped. Takes over the
+   * detector started by {@link #prewarm()} if it is for the same model.
+   */
+  public Classifier createClassifier(final ModelDescriptor model) throws IOException {
+    final FutureTask<Prewarmed> task;
+    synchronized (this) {
+      task = prewarmed;
+      prewarmed = null;
+    }
+    if (task != null) {
+      final Prewarmed result = getPrewarmed(task);
+      if (result != null) {
+        if (result.model.isSameModel(model)) {
+          return result.classifier;
+        }
+        result.classifier.close();
+      }
+    }
+    return loadClassifier(model);
+  }
+
+  private static Prewarmed getPrewarmed(final FutureTask<Prewarmed> task) {
+    try {
+      return task.get();
+    } catch (final ExecutionException e) {
+      Log.w(TAG, "Prewarming the model failed", e.getCause());
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return null;
+  }
+
+  private Classifier loadClassifier(final ModelDescriptor model) throws IOException {
+    if (model.isAsset()) {
+      return TFLiteObjectDetectionAPIModel.create(
+          context.getAssets(),
+          model.getModelFile(),
+          model.getLabelFile(),
+          model.getInputSize(),
+          model.getImageMean(),
+          model.getImageStd());
+    }
+    return TFLiteObjectDetectionAPIModel.create(
+        new File(model.getDirectory(), model.getModelFile()),
+        new File(model.getDirectory(), model.getLabelFile()),
+        model.getInputSize(),
+        model.getImageMean(),
+        model.getImageStd());
+  }
+
+  private SharedPreferences getPreferences() {
+    return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+  }
+
+  private static final class Prewarmed {
+    final ModelDescriptor model;
+    final Classifier classifier;
+
+    Prewarmed(final ModelDescriptor model, final Classifier classifier) {
+      this.model = model;
+      this.classifier = classifier;
+    }
+  }
+
+  private static String baseName(final String fileName) {
+    return fileName.substring(0, fileName.length() - DESCRIPTOR_SUFFIX.length());
+  }
+
+  private static String readFully(final InputStream input) throws IOException {
+    try {
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      final byte[] buffer = new byte[4096];
+      int read;
+      while ((read = input.read(buffer)) != -1) {
+        out.write(buffer, 0, read);
+      }
+      return out.toString("UTF-8");
+    } finally {
+      input.close();
+    }
+  }
+}
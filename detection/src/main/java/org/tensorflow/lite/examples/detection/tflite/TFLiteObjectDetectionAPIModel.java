@@ -0,0 +1,340 @@
+/* Copyright 2019 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow.lite.examples.detection.tflite;
+
+import android.content.res.AssetManager;
+import android.graphics.Bitmap;
+import android.os.Trace;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.tensorflow.lite.Interpreter;
+import org.tensorflow.lite.Tensor;
+
+/**
+ * Wrapper for frozen detection models trained using the Tensorflow Object Detection API:
+ * github.com/tensorflow/models/tree/master/research/object_detection
+ */
+public class TFLiteObjectDetectionAPIModel implements Classifier {
+  //private static final Logger LOGGER = new Logger();
+
+  // Only return this many results.
+  private static final int NUM_DETECTIONS = 10;
+  // Normalization of the SSD models from the Object Detection API.
+  public static final float DEFAULT_IMAGE_MEAN = 128.0f;
+  public static final float DEFAULT_IMAGE_STD = 128.0f;
+  // Number of threads in the java app
+  private static final int NUM_THREADS = 4;
+  // Chosen from the data type and quantization of the input tensor.
+  private PixelPacker pixelPacker;
+  // Config values.
+  private int inputSize;
+  // Number of images the input tensor and buffers are currently sized for.
+  private int batchSize;
+  // Cleared once the model rejects a batch of more than one image.
+  private boolean batchSupported = true;
+  // Pre-allocated buffers.
+  private List<String> labels;
+  private int[] intValues;
+  // imgData: input of shape [Batchsize, inputSize, inputSize, 3]
+  // outputLocations: array of shape [Batchsize, NUM_DETECTIONS,4]
+  // contains the location of detected boxes
+  private float[][][] outputLocations;
+  // outputClasses: array of shape [Batchsize, NUM_DETECTIONS]
+  // contains the classes of detected boxes
+  private float[][] outputClasses;
+  // outputScores: array of shape [Batchsize, NUM_DETECTIONS]
+  // contains the scores of detected boxes
+  private float[][] outputScores;
+  // numDetections: array of shape [Batchsize]
+  // contains the number of detected boxes
+  private float[] numDetections;
+  // Decoded results, reused for every image.
+  private final DetectionBatch detections = new DetectionBatch(NUM_DETECTIONS);
+
+  private ByteBuffer imgData;
+
+  private Interpreter tfLite;
+
+  private TFLiteObjectDetectionAPIModel() {}
+
+  /**
+   * Initializes a native TensorFlow session for classifying images.
+   *
+   * @param assetManager The asset manager to be used to load assets.
+   * @param modelFilename The filepath of the model GraphDef protocol buffer. Compressed assets
+   *     are supported but cannot be memory-mapped.
+   * @param labelFilename The filepath of label file for classes, with or without the
+   *     file:///android_asset/ prefix.
+   * @param inputSize The size of image input
+   * @param imageMean Channel value the model sees as 0
+   * @param imageStd Channel value range the model sees as 1
+   */
+  public static Classifier create(
+      final AssetManager assetManager,
+      final String modelFilename,
+      final String labelFilename,
+      final int inputSize,
+      final float imageMean,
+      final float imageStd)
+      throws IOException {
+    return create(
+        ModelLoader.loadModel(assetManager, ModelLoader.toAssetName(modelFilename)),
+        ModelLoader.loadLabels(assetManager, ModelLoader.toAssetName(labelFilename)),
+        inputSize,
+        imageMean,
+        imageStd);
+  }
+
+  /**
+   * Initializes a native TensorFlow session from files on disk, e.g. for offline evaluation.
+   *
+   * @param modelFile The TensorFlow Lite model.
+   * @param labelFile The label file for classes.
+   * @param inputSize The size of image input
+   * @param imageMean Channel value the model sees as 0
+   * @param imageStd Channel value range the model sees as 1
+   */
+  public static Classifier create(
+      final File modelFile,
+      final File labelFile,
+      final int inputSize,
+      final float imageMean,
+      final float imageStd)
+      throws IOException {
+    return create(
+        ModelLoader.loadModel(modelFile),
+        ModelLoader.loadLabels(labelFile),
+        inputSize,
+        imageMean,
+        imageStd);
+  }
+
+  private static Classifier create(
+      final ByteBuffer model,
+      final List<String> labels,
+      final int inputSize,
+      final float imageMean,
+      final float imageStd) {
+    final TFLiteObjectDetectionAPIModel d = new TFLiteObjectDetectionAPIModel();
+    d.labels = labels;
+    d.inputSize = inputSize;
+
+    try {
+      d.tfLite = new Interpreter(model);
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+
+    // The input tensor says how the pixels have to be encoded, so uint8, int8, fp16 and fp32
+    // models all work without being told which one they are.
+    final Tensor input = d.tfLite.getInputTensor(0);
+    final Tensor.QuantizationParams quantization = input.quantizationParams();
+    try {
+      d.pixelPacker =
+          PixelPacker.create(
+              input.dataType().name(),
+              quantization.getScale(),
+              quantization.getZeroPoint(),
+              imageMean,
+              imageStd);
+    } catch (final IllegalArgumentException e) {
+      d.tfLite.close();
+      throw e;
+    }
+    // Pre-allocate buffers.
+    d.intValues = new int[d.inputSize * d.inputSize];
+
+    d.tfLite.setNumThreads(NUM_THREADS);
+    d.setBatchSize(1);
+    return d;
+  }
+
+  @Override
+  public DetectionBatch detect(final Bitmap bitmap) {
+    // Log this method so that it can be analyzed with systrace.
+    Trace.beginSection("detect");
+
+    setBatchSize(1);
+
+    Trace.beginSection("preprocessBitmap");
+    imgData.rewind();
+    packPixels(bitmap);
+    Trace.endSection(); // preprocessBitmap
+
+    runInference();
+
+    decodeResults(0, detections);
+    Trace.endSection(); // "detect"
+    return detections;
+  }
+
+  @Override
+  public List<Recognition> recognizeImage(final Bitmap bitmap) {
+    return Recognition.listOf(detect(bitmap));
+  }
+
+  @Override
+  public List<List<Recognition>> recognizeImages(final List<Bitmap> bitmaps) {
+    final List<List<Recognition>> results = new ArrayList<>(bitmaps.size());
+    if (bitmaps.isEmpty()) {
+      return results;
+    }
+    if (!batchSupported || bitmaps.size() == 1) {
+      return recognizeEach(bitmaps, results);
+    }
+
+    Trace.beginSection("recognizeImages");
+    try {
+      try {
+        setBatchSize(bitmaps.size());
+      } catch (final IllegalArgumentException | IllegalStateException e) {
+        batchSupported = false;
+        return recognizeEach(bitmaps, results);
+      }
+
+      Trace.beginSection("preprocessBitmap");
+      try {
+        imgData.rewind();
+        for (final Bitmap bitmap : bitmaps) {
+          packPixels(bitmap);
+        }
+      } finally {
+        Trace.endSection(); // preprocessBitmap
+      }
+
+      try {
+        runInference();
+      } catch (final IllegalArgumentException | IllegalStateException e) {
+        // The detection post-processing op of many SSD models only supports a batch of one.
+        batchSupported = false;
+        return recognizeEach(bitmaps, results);
+      }
+
+      for (int b = 0; b < bitmaps.size(); ++b) {
+        decodeResults(b, detections);
+        results.add(Recognition.listOf(detections));
+      }
+      return results;
+    } finally {
+      Trace.endSection(); // "recognizeImages"
+    }
+  }
+
+  private List<List<Recognition>> recognizeEach(
+      final List<Bitmap> bitmaps, final List<List<Recognition>> results) {
+    for (final Bitmap bitmap : bitmaps) {
+      results.add(recognizeImage(bitmap));
+    }
+    return results;
+  }
+
+  /** Resizes the input tensor and the pre-allocated buffers for the given number of images. */
+  private void setBatchSize(final int size) {
+    if (size == batchSize) {
+      return;
+    }
+    tfLite.resizeInput(0, new int[] {size, inputSize, inputSize, 3});
+    imgData =
+        ByteBuffer.allocateDirect(
+            size * inputSize * inputSize * 3 * pixelPacker.getBytesPerChannel());
+    imgData.order(ByteOrder.nativeOrder());
+    outputLocations = new float[size][NUM_DETECTIONS][4];
+    outputClasses = new float[size][NUM_DETECTIONS];
+    outputScores = new float[size][NUM_DETECTIONS];
+    numDetections = new float[size];
+    batchSize = size;
+  }
+
+  /** Appends the pixels of one image to the input buffer. */
+  private void packPixels(final Bitmap bitmap) {
+    bitmap.getPixels(intValues, 0, bitmap.getWidth(), 0, 0, bitmap.getWidth(), bitmap.getHeight());
+    pixelPacker.pack(intValues, inputSize * inputSize, imgData);
+  }
+
+  private void runInference() {
+    // Copy the input data into TensorFlow.
+    Trace.beginSection("feed");
+    Object[] inputArray = {imgData};
+    Map<Integer, Object> outputMap = new HashMap<>();
+    outputMap.put(0, outputLocations);
+    outputMap.put(1, outputClasses);
+    outputMap.put(2, outputScores);
+    outputMap.put(3, numDetections);
+    Trace.endSection();
+
+    // Run the inference call.
+    Trace.beginSection("run");
+    try {
+      tfLite.runForMultipleInputsOutputs(inputArray, outputMap);
+    } finally {
+      Trace.endSection();
+    }
+  }
+
+  /** Converts the outputs of one image in the batch into recognitions. */
+  private void decodeResults(final int b, final DetectionBatch batch) {
+    // Show the best detections.
+    // after scaling them back to the input size.
+    batch.clear();
+    for (int i = 0; i < NUM_DETECTIONS; ++i) {
+      // SSD Mobilenet V1 Model assumes class 0 is background class
+      // in label file and class labels start from 1 to number_of_classes+1,
+      // while outputClasses correspond to class index from 0 to number_of_classes
+      final int labelOffset = 1;
+      final int classIndex = (int) outputClasses[b][i] + labelOffset;
+      batch.add(
+          outputLocations[b][i][1] * inputSize,
+          outputLocations[b][i][0] * inputSize,
+          outputLocations[b][i][3] * inputSize,
+          outputLocations[b][i][2] * inputSize,
+          outputScores[b][i],
+          classIndex,
+          labels.get(classIndex));
+    }
+  }
+
+
+  @Override
+  public void enableStatLogging(final boolean logStats) {}
+
+  @Override
+  public String getStatString() {
+    return "";
+  }
+
+  @Override
+  public void close() {
+    if (tfLite != null) {
+      tfLite.close();
+      tfLite = null;
+    }
+  }
+
+  public void setNumThreads(int num_threads) {
+    if (tfLite != null) tfLite.setNumThreads(num_threads);
+  }
+
+  @Override
+  public void setUseNNAPI(boolean isChecked) {
+    if (tfLite != null) tfLite.setUseNNAPI(isChecked);
+  }
+}
@@ -25,7 +25,6 @@ import android.graphics.Paint.Join;
 import android.graphics.Paint.Style;
 import android.graphics.RectF;
 import android.text.TextUtils;
-import android.util.Pair;
 import android.util.TypedValue;
 
 import java.util.LinkedList;
@@ -34,6 +33,7 @@ import java.util.Queue;
 import org.tensorflow.lite.examples.detection.env.BorderedText;
 import org.tensorflow.lite.examples.detection.env.ImageUtils;
 import org.tensorflow.lite.examples.detection.tflite.Classifier.Recognition;
+import org.tensorflow.lite.examples.detection.tflite.DetectionBatch;
 
 /** A tracker that handles non-max suppression and matches existing objects to new detections. */
 public class MultiBoxTracker {
@@ -57,9 +57,11 @@ public class MultiBoxTracker {
     Color.parseColor("#AA33AA"),
     Color.parseColor("#0D0068")
   };
-  final List<Pair<Float, RectF>> screenRects = new LinkedList<Pair<Float, RectF>>();
   private final Queue<Integer> availableColors = new LinkedList<Integer>();
-  private final List<TrackedRecognition> trackedObjects = new LinkedList<TrackedRecognition>();
+  // One slot per color, refilled for every frame; the first trackedCount are in use.
+  private final TrackedRecognition[] trackedObjects = new TrackedRecognition[COLORS.length];
+  private int trackedCount;
+  private final RectF drawRect = new RectF();
   private final Paint boxPaint = new Paint();
   private final float textSizePx;
   private final BorderedText borderedText;
@@ -74,6 +76,9 @@ public class MultiBoxTracker {
     for (final int color : COLORS) {
       availableColors.add(color);
     }
+    for (int i = 0; i < trackedObjects.length; ++i) {
+      trackedObjects[i] = new TrackedRecognition();
+    }
 
 
     boxPaint.setColor(Color.RED);
@@ -99,11 +104,27 @@ public class MultiBoxTracker {
   }
 
   // detect and draw line
-  public synchronized void trackResults(final List<Recognition> results, final long timestamp) {
-
+  public synchronized void trackResults(final DetectionBatch results, final long timestamp) {
     processResults(results);
   }
 
+  /** Same as {@link #trackResults(DetectionBatch, long)}, for results as Recognition objects. */
+  public synchronized void trackResults(final List<Recognition> results, final long timestamp) {
+    final DetectionBatch batch = new DetectionBatch(results.size());
+    for (final Recognition result : results) {
+      final RectF location = result.getLocation();
+      batch.add(
+          location.left,
+          location.top,
+          location.right,
+          location.bottom,
+          result.getConfidence(),
+          -1,
+          result.getTitle());
+    }
+    processResults(batch);
+  }
+
   private Matrix getFrameToCanvasMatrix() {
     return frameToCanvasMatrix;
   }
@@ -125,8 +146,10 @@ public class MultiBoxTracker {
             (int) (multiplier * (rotated ? frameWidth : frameHeight)),
             sensorOrientation,
             false);
-    for (final TrackedRecognition recognition : trackedObjects) {
-      final RectF trackedPos = new RectF(recognition.location);
+    for (int i = 0; i < trackedCount; ++i) {
+      final TrackedRecognition recognition = trackedObjects[i];
+      final RectF trackedPos = drawRect;
+      trackedPos.set(recognition.location);
 
       getFrameToCanvasMatrix().mapRect(trackedPos);
 
@@ -145,54 +168,27 @@ public class MultiBoxTracker {
   }
 
   // detect the object and make the frame
-  private void processResults(final List<Recognition> results) {
-    final List<Pair<Float, Recognition>> rectsToTrack = new LinkedList<Pair<Float, Recognition>>();
-
-    screenRects.clear();
-    final Matrix rgbFrameToScreen = new Matrix(getFrameToCanvasMatrix());
-
-    for (final Recognition result : results) {
-      if (result.getLocation() == null) {
+  private void processResults(final DetectionBatch results) {
+    trackedCount = 0;
+    for (int i = 0; i < results.size() && trackedCount < trackedObjects.length; ++i) {
+      if (results.getWidth(i) < MIN_SIZE || results.getHeight(i) < MIN_SIZE) {
         continue;
       }
-      final RectF detectionFrameRect = new RectF(result.getLocation());
 
-      final RectF detectionScreenRect = new RectF();
-      rgbFrameToScreen.mapRect(detectionScreenRect, detectionFrameRect);
-
-      screenRects.add(new Pair<Float, RectF>(result.getConfidence(), detectionScreenRect));
-
-      if (detectionFrameRect.width() < MIN_SIZE || detectionFrameRect.height() < MIN_SIZE) {
-        continue;
-      }
-
-      rectsToTrack.add(new Pair<Float, Recognition>(result.getConfidence(), result));
+      // keep track on
+      final TrackedRecognition trackedRecognition = trackedObjects[trackedCount];
+      trackedRecognition.detectionConfidence = results.getScore(i);
+      trackedRecognition.location.set(
+          results.getLeft(i), results.getTop(i), results.getRight(i), results.getBottom(i));
+      trackedRecognition.title = results.getLabel(i);
+      trackedRecognition.color = COLORS[trackedCount];
+      ++trackedCount;
     }
-
-    trackedObjects.clear();
-    if (rectsToTrack.isEmpty()) {
-      return;
-    }
-
-    // keep track on
-    for (final Pair<Float, Recognition> potential : rectsToTrack) {
-      final TrackedRecognition trackedRecognition = new TrackedRecognition();
-      trackedRecognition.detectionConfidence = potential.first;
-      trackedRecognition.location = new RectF(potential.second.getLocation());
-      trackedRecognition.title = potential.second.getTitle();
-      trackedRecognition.color = COLORS[trackedObjects.size()];
-      trackedObjects.add(trackedRecognition);
-
-      if (trackedObjects.size() >= COLORS.length) {
-        break;
-      }
-    }
-
   }
 
 
   private static class TrackedRecognition {
-    RectF location;
+    final RectF location = new RectF();
     float detectionConfidence;
     int color;
     String title;
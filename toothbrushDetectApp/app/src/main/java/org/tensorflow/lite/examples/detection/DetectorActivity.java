@@ -19,11 +19,7 @@ package org.tensorflow.lite.examples.detection;
 import android.graphics.Bitmap;
 import android.graphics.Bitmap.Config;
 import android.graphics.Canvas;
-import android.graphics.Color;
 import android.graphics.Matrix;
-import android.graphics.Paint;
-import android.graphics.Paint.Style;
-import android.graphics.RectF;
 import android.graphics.Typeface;
 import android.media.ImageReader.OnImageAvailableListener;
 import android.os.SystemClock;
@@ -33,13 +29,12 @@ import android.view.View;
 import android.widget.CompoundButton;
 import android.widget.Toast;
 import java.io.IOException;
-import java.util.LinkedList;
-import java.util.List;
 import org.tensorflow.lite.examples.detection.customview.OverlayView;
 import org.tensorflow.lite.examples.detection.customview.OverlayView.DrawCallback;
 import org.tensorflow.lite.examples.detection.env.BorderedText;
 import org.tensorflow.lite.examples.detection.env.ImageUtils;
 import org.tensorflow.lite.examples.detection.tflite.Classifier;
+import org.tensorflow.lite.examples.detection.tflite.DetectionBatch;
 import org.tensorflow.lite.examples.detection.tflite.TFLiteObjectDetectionAPIModel;
 import org.tensorflow.lite.examples.detection.tracking.MultiBoxTracker;
 
@@ -52,7 +47,6 @@ public class DetectorActivity extends CameraActivity implements OnImageAvailable
 
   // Configuration values for the prepackaged SSD model.
   private static final int TF_OD_API_INPUT_SIZE = 300;
-  private static final boolean TF_OD_API_IS_QUANTIZED = true;
   private static final String TF_OD_API_MODEL_FILE = "detect.tflite";
   private static final String TF_OD_API_LABELS_FILE = "file:///android_asset/labelmap.txt";
   private static final DetectorMode MODE = DetectorMode.TF_OD_API;
@@ -71,9 +65,6 @@ public class DetectorActivity extends CameraActivity implements OnImageAvailable
   private long lastProcessingTimeMs;
   private Bitmap rgbFrameBitmap = null;
   private Bitmap croppedBitmap = null;
-  private Bitmap cropCopyBitmap = null;
-
-  private boolean computingDetection = false;
 
   private long timestamp = 0;
 
@@ -103,7 +94,8 @@ public class DetectorActivity extends CameraActivity implements OnImageAvailable
               TF_OD_API_MODEL_FILE,
               TF_OD_API_LABELS_FILE,
               TF_OD_API_INPUT_SIZE,
-              TF_OD_API_IS_QUANTIZED);
+              TFLiteObjectDetectionAPIModel.DEFAULT_IMAGE_MEAN,
+              TFLiteObjectDetectionAPIModel.DEFAULT_IMAGE_STD);
       cropSize = TF_OD_API_INPUT_SIZE;
     } catch (final IOException e) {
       e.printStackTrace();
@@ -154,12 +146,8 @@ public class DetectorActivity extends CameraActivity implements OnImageAvailable
     final long currTimestamp = timestamp;
     trackingOverlay.postInvalidate();
 
-    // No mutex needed as this method is not reentrant.
-    if (computingDetection) {
-      readyForNextImage();
-      return;
-    }
-    computingDetection = true;
+    // The camera thread claimed the frame slot for this frame, so no inference is running.
+    final long frameStartTime = SystemClock.uptimeMillis();
 
     rgbFrameBitmap.setPixels(getRgbBytes(), 0, previewWidth, 0, 0, previewWidth, previewHeight);
 
@@ -172,48 +160,40 @@ public class DetectorActivity extends CameraActivity implements OnImageAvailable
       ImageUtils.saveBitmap(croppedBitmap);
     }
 
+    // Publish the crop; the inference thread sees everything written to it above.
+    frameSlot.commitFill();
     runInBackground(
         new Runnable() {
           @Override
           public void run() {
-            final long startTime = SystemClock.uptimeMillis();
-            final List<Classifier.Recognition> results = detector.recognizeImage(croppedBitmap);
-            lastProcessingTimeMs = SystemClock.uptimeMillis() - startTime;
-
-            cropCopyBitmap = Bitmap.createBitmap(croppedBitmap);
-            final Canvas canvas = new Canvas(cropCopyBitmap);
-            final Paint paint = new Paint();
-            paint.setColor(Color.RED);
-            paint.setStyle(Style.STROKE);
-            paint.setStrokeWidth(2.0f);
-
-            float minimumConfidence = MINIMUM_CONFIDENCE_TF_OD_API;
-            switch (MODE) {
-              case TF_OD_API:
-                minimumConfidence = MINIMUM_CONFIDENCE_TF_OD_API;
-                break;
+            if (!frameSlot.tryBeginConsume()) {
+              return;
             }
+            boolean detected = false;
+            try {
+              final long startTime = SystemClock.uptimeMillis();
+              final DetectionBatch results = detector.detect(croppedBitmap);
+              lastProcessingTimeMs = SystemClock.uptimeMillis() - startTime;
+
+              float minimumConfidence = MINIMUM_CONFIDENCE_TF_OD_API;
+              switch (MODE) {
+                case TF_OD_API:
+                  minimumConfidence = MINIMUM_CONFIDENCE_TF_OD_API;
+                  break;
+              }
 
-            final List<Classifier.Recognition> mappedRecognitions =
-                new LinkedList<Classifier.Recognition>();
-
-            for (final Classifier.Recognition result : results) {
-              final RectF location = result.getLocation();
-              if (location != null && result.getConfidence() >= minimumConfidence) {
-                canvas.drawRect(location, paint);
-
-                cropToFrameTransform.mapRect(location);
+              // Filter and map to the frame in place; the tracker copies what it keeps.
+              results.retainScoresAtLeast(minimumConfidence);
+              ImageUtils.mapBoxes(cropToFrameTransform, results);
 
-                result.setLocation(location);
-                mappedRecognitions.add(result);
-              }
+              tracker.trackResults(results, currTimestamp);
+              detected = results.size() > 0;
+            } finally {
+              frameSlot.endConsume();
+              // Report failed frames too, or a replay waiting on this one never resumes.
+              onFrameProcessed(detected, SystemClock.uptimeMillis() - frameStartTime);
             }
-
-            tracker.trackResults(mappedRecognitions, currTimestamp);
             trackingOverlay.postInvalidate();
-
-            computingDetection = false;
-
           }
         });
   }
@@ -228,6 +208,11 @@ public class DetectorActivity extends CameraActivity implements OnImageAvailable
     return DESIRED_PREVIEW_SIZE;
   }
 
+  @Override
+  protected int getModelInputSize() {
+    return TF_OD_API_INPUT_SIZE;
+  }
+
   @Override
   public void onClick(View v) {
     Toast.makeText(this,"ttttt",Toast.LENGTH_SHORT).show();
@@ -246,12 +231,12 @@ public class DetectorActivity extends CameraActivity implements OnImageAvailable
 
   @Override
   protected void setUseNNAPI(final boolean isChecked) {
-    runInBackground(() -> detector.setUseNNAPI(isChecked));
+    runConfigInBackground("nnapi", () -> detector.setUseNNAPI(isChecked));
   }
 
   @Override
   protected void setNumThreads(final int numThreads) {
-    runInBackground(() -> detector.setNumThreads(numThreads));
+    runConfigInBackground("threads", () -> detector.setNumThreads(numThreads));
   }
 
 